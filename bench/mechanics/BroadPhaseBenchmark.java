@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A benchmark of the broad phase, kept out of the game's own source tree and run
+ * from the command line against the headless <code>Battlefield</code>. It
+ * crowds a mix of lasers, gas clouds, and ships together, a few hundred pixels
+ * apart at most, and brings two copies of that world forward by one update:
+ * one with the loop <code>Battlefield</code> used to have, which calls
+ * <code>interactWith</code> on every pair of bodies, and one with the real
+ * update, which only calls it on the pairs the grid finds. It prints how long
+ * each takes with 100, 1,000, and 10,000 bodies, along with how many bodies
+ * actually got hit, absorbed, or damaged, and exits with a nonzero status if
+ * the two worlds don't come out exactly the same or if nothing happened at all.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class BroadPhaseBenchmark {
+
+	public static final int[] SIZES = {100, 1000, 10000};	// how many bodies to try
+	public static final double SPACING = 40*Univ.pix;	// roughly how far apart the bodies are, so that plenty of them touch
+	public static final double WORK = 2e7;	// roughly how many pair checks to time for each size
+	public static final double DT = 16*Univ.ms;	// how long the update is
+	public static final Scenario EMPTY = new Scenario(new String[0], new double[0], new double[0], new double[0]);	// no planets, since
+																					// the old loop had no index for them
+	
+	
+	public static void main(String[] args) {
+		
+		final double t0 = 0;
+		final double t = t0 + DT;
+		for (int n: SIZES) {
+			final int reps = (int)Math.max(3, WORK/((double)n*n));
+			
+			double[] expected = null;
+			int effects = 0;
+			long allPairs = Long.MAX_VALUE;
+			for (int r = 0; r < reps; r ++) {	// check every pair, keeping the fastest time
+				final Battlefield game = build(n, t0);
+				final double[] before = fingerprint(game, t);
+				final long start = System.nanoTime();
+				allPairs(game, t);
+				allPairs = Math.min(allPairs, System.nanoTime() - start);
+				expected = fingerprint(game, t);
+				effects = differences(before, expected);
+			}
+			
+			double[] actual = null;
+			long hashed = Long.MAX_VALUE;
+			for (int r = 0; r < reps; r ++) {	// then do a real update, the same way
+				final Battlefield game = build(n, t0);
+				final long start = System.nanoTime();
+				game.advanceTo(t);
+				hashed = Math.min(hashed, System.nanoTime() - start);
+				actual = fingerprint(game, t);
+			}
+			
+			if (!Arrays.equals(expected, actual)) {
+				System.err.println("Broad phase benchmark failed: with "+n+" bodies, the grid changed "+
+						differences(expected, actual)+" things that all-pairs didn't");
+				System.exit(1);
+			}
+			if (effects == 0) {
+				System.err.println("Broad phase benchmark failed: nothing touched anything with "+n+" bodies");
+				System.exit(1);
+			}
+			System.out.printf("%6d bodies, %5d affected: all pairs %9.3f ms, grid %7.3f ms, %6.1fx faster%n",
+					n, effects, allPairs/1e6, hashed/1e6, (double)allPairs/hashed);
+		}
+		
+	}
+	
+	
+	private static Battlefield build(int n, double t0) {	// the same crowd of bodies every time
+		final Battlefield game = new Battlefield(null, 0, true, 1L, EMPTY, new ManualClock(t0));
+		final Random rng = new Random(n);
+		final double size = SPACING*Math.sqrt(n);
+		final List<Body> batch = new ArrayList<Body>(n);
+		for (int i = 0; i < n; i ++) {
+			final double x = (rng.nextDouble()-.5)*size;
+			final double y = (rng.nextDouble()-.5)*size;
+			final int k = rng.nextInt(10);
+			if (k < 7)
+				batch.add(new Laser(x, y, 2*Math.PI*rng.nextDouble(), t0, game));
+			else if (k < 9)
+				batch.add(new GasCloud(x, y, 0, 0, t0-3*Univ.s, game));
+			else
+				batch.add(Ship.buildShip((byte)rng.nextInt(5), x, y, t0, (byte)i, rng.nextBoolean(), game));
+		}
+		game.spawn(batch);
+		game.commit();
+		return game;
+	}
+	
+	
+	private static void allPairs(Battlefield game, double t) {	// the update Battlefield had before the broad phase
+		final List<Body> bodies = game.getBodies();
+		final int n = bodies.size();
+		final BitSet live = new BitSet(n);
+		for (int i = 0; i < n; i ++)
+			if (bodies.get(i).existsAt(t))
+				live.set(i);
+		
+		for (int i = n-1; i > 0; i --) {	// call interactWith on every pair there is
+			final Body b1 = bodies.get(i);
+			if (b1.existsAt(t)) {
+				for (int j = 0; j < i; j ++) {
+					final Body b2 = bodies.get(j);
+					if (b2.existsAt(t)) {
+						b1.interactWith(b2, t);
+						b2.interactWith(b1, t);
+					}
+				}
+			}
+		}
+		for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i+1))
+			bodies.get(i).resolve(t);
+		
+		game.commit();	// then update everything, in the same order as the real thing
+		for (int i = bodies.size()-1; i >= n; i --)
+			game.updateBody(bodies.get(i), t);
+		for (int i = live.previousSetBit(n-1); i >= 0; i = live.previousSetBit(i-1))
+			game.updateBody(bodies.get(i), t);
+		game.commit();
+	}
+	
+	
+	private static double[] fingerprint(Battlefield game, double t) {	// everything interactWith could have changed
+		final List<Body> bodies = game.getBodies();
+		final double[] out = new double[2*bodies.size()+2];
+		for (int i = 0; i < bodies.size(); i ++) {
+			final Body b = bodies.get(i);
+			out[2*i] = b.endTime();				// lasers end when they hit something
+			if (b instanceof Ship)
+				out[2*i+1] = ((Ship) b).hValAt(t);	// ships lose health
+			else if (b instanceof GasCloud)
+				out[2*i+1] = ((GasCloud) b).EValAt(t);	// and gas clouds gain energy
+		}
+		out[out.length-2] = bodies.size();
+		out[out.length-1] = game.getDebris().size();	// and every hit throws off debris
+		return out;
+	}
+	
+	
+	private static int differences(double[] a, double[] b) {	// how many bodies changed between two fingerprints
+		int count = 0;
+		for (int i = 0; i < Math.min(a.length, b.length)/2; i ++)
+			if (Double.compare(a[2*i], b[2*i]) != 0 || Double.compare(a[2*i+1], b[2*i+1]) != 0)
+				count ++;
+		return count;
+	}
+
+}
@@ -124,13 +124,13 @@ public class Controller implements MouseWheelListener, MouseMotionListener, Mous
 	
 	@Override
 	public void mouseClicked(MouseEvent e) {	// when the mouse is clicked...
-		final byte mPos = view.getMousePos(e.getX(), e.getY(), e.getWhen());
+		final byte mPos = view.getMousePos(e.getX(), e.getY(), view.getFrameTime());	// (what the player clicked on is what they saw)
 		
 		if (orderMode < -1 && activeShip >= 0) {		// if an order and a ship were active
 			final double sx = view.spaceXFscreenX(e.getX());
 			final double sy = view.spaceYFscreenY(e.getY());
 			game.receive(Protocol.composeOrder(orderMode, activeShip, sx, sy,	// give the order to the game
-					                           (double)System.currentTimeMillis()));
+					                           game.now()));
 			setOrder((byte) -1);
 		}
 		else if (mPos < -1)			// if a button was clicked on
@@ -37,15 +37,21 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
 import mechanics.Battlefield;
 import mechanics.Body;
+import mechanics.Debris;
+import mechanics.Observation;
 import mechanics.Order;
+import mechanics.Planet;
 import mechanics.Ship;
+import mechanics.SoundQueue;
 import network.Protocol;
 
 /**
@@ -69,12 +75,14 @@ public class GameScreen extends JPanel {
 	
 	private HashMap<String, BufferedImage> sprites;	// the images it uses to display objects
 	private HashMap<String, BufferedImage> icons;
-	private HashMap<String, AudioClip> sounds;
+	private AudioClip[] sounds;		// the sound clips, by ID
+	private byte[] soundBuffer;		// where the IDs of the sounds to play this frame go
+	private double[] speckVelocity;	// where the velocity of each speck of debris goes as it's drawn
 	
 	private Main application;
 	private Battlefield game;
 	private Controller listener;
-	private Ship activeShip;
+	private volatile byte activeShip;	// the id of the selected ship, or -1 (input picks it on the EDT, but only this looks it up)
 	
 	private Canvas canvs;			// some necessary java.awt stuff
 	private BufferStrategy strat;
@@ -83,7 +91,8 @@ public class GameScreen extends JPanel {
 	private double scale;	// the variables that define the screen's position and zoom-level
 	private byte flip;		// either 1 or negative 1, gets multiplied to all space positions and rotations
 	
-	private HashMap<Ship, Point> shipLocations;	// the last drawn positions of the ships
+	private volatile HashMap<Byte, Point> shipLocations;	// where each ship was drawn in the last frame, by id (a new map every
+	private volatile double frameTime;						// frame, so input can hit-test against it from the EDT), and when
 	
 	
 	
@@ -108,11 +117,14 @@ public class GameScreen extends JPanel {
 		
 		loadImages();
 		loadSounds();
+		soundBuffer = new byte[64];
+		speckVelocity = new double[2];
 		
 		origX = w/2;
 		origY = h/2;
 		scale = 1.0;
-		shipLocations = new HashMap<Ship, Point>();
+		shipLocations = new HashMap<Byte, Point>();
+		activeShip = -1;
 		if (host)	flip = 1;
 		else		flip = -1;
 	}
@@ -143,14 +155,19 @@ public class GameScreen extends JPanel {
 		}
 		
 		final Graphics2D g = (Graphics2D)strat.getDrawGraphics();	// get some useful objects
-		final double t = (double)System.currentTimeMillis();
+		final double t = game.now();
 		
 		g.drawImage(icons.get("space"), 0, 0, null);	// draw the background
 		
+		for (Planet p: game.getPlanets())	// draw the planets first,
+			draw(p, g, t);
 		final List<Body> bodies = game.getBodies();
-		for (int i = 0; i < bodies.size(); i ++)	// for each Body
+		for (int i = 0; i < bodies.size(); i ++)	// then each Body
 			draw(bodies.get(i), g, t);				// display its sprite
+		drawDebris(g, t);
 		drawIcons(g, t);
+		frameTime = t;
+		playSounds(t);
 		
 		if (game.started)
 			drawHUD(g, t);		// draw the heads-up display
@@ -168,10 +185,6 @@ public class GameScreen extends JPanel {
 	private void draw(Body b, Graphics2D g, double t) {	// put a picture of b on g at time t
 		t = game.observedTime(b, t);	// correct for information delay
 		
-		try {
-			sounds.get(b.soundName(t)).play();	// now, play its sound
-		} catch (NullPointerException e) {}		// if it has one
-		
 		if ((b instanceof Ship && ((Ship) b).isBlue()) || !b.existsAt(t))	// and skip drawing it if it does not exist or is a Ship
 			return;
 		
@@ -189,8 +202,42 @@ public class GameScreen extends JPanel {
 	}
 	
 	
+	private void drawDebris(Graphics2D g, double t) {	// put every speck of debris anyone can see on g at time t
+		final Debris debris = game.getDebris();
+		final Observation view = game.observe(t);
+		final BufferedImage img;
+		try {
+			img = executeTransformation(g, getSprite("debris"), null);	// they all look the same, so this only happens once
+		}
+		catch (java.awt.image.RasterFormatException e) { return; }
+		catch (java.awt.image.ImagingOpException e) { return; }
+		
+		for (int i = 0; i < debris.size(); i ++) {	// for each hit
+			final double x0 = debris.x(i), y0 = debris.y(i), t0 = debris.time(i);
+			for (int k = 0; k < debris.count(i); k ++) {	// work out where each speck went
+				debris.velocity(i, k, speckVelocity);
+				final double ts = view.observedTime(x0, y0, speckVelocity[0], speckVelocity[1], t0);
+				if (Double.isNaN(ts))	continue;
+				
+				int screenX = screenXFspaceX(x0 + speckVelocity[0]*(ts-t0));
+				int screenY = screenYFspaceY(y0 + speckVelocity[1]*(ts-t0));
+				g.drawImage(img, screenX - img.getWidth()/2, screenY - img.getHeight()/2, null);
+			}
+		}
+	}
+	
+	
+	private void playSounds(double t) {	// play every sound whose source we can now see
+		final int n = game.drainSounds(t, soundBuffer);
+		for (int i = 0; i < n; i ++)
+			if (sounds[soundBuffer[i]] != null)
+				sounds[soundBuffer[i]].play();
+	}
+	
+	
 	private void drawIcons(Graphics2D g, final double t0) {	// draw the ships and orders
 		final List<Ship> ships = game.getShips();
+		final List<Order> orders = game.getOrders();
 		
 		if (!game.started) {	// draw the placement region first
 			BufferedImage reg = getSprite(game.getRegion().spriteName());	// finds the correct sprite
@@ -200,14 +247,15 @@ public class GameScreen extends JPanel {
 			g.drawImage(reg, screenX - reg.getWidth()/2, screenY - reg.getHeight()/2, null);
 		}
 		
+		final HashMap<Byte, Point> locations = new LinkedHashMap<Byte, Point>();	// (in the order they get drawn)
 		for (Ship s: ships) {
 			final double ts = game.observedTime(s, t0);	// get the observed time
 			if (!s.existsAt(ts))	continue;
 			int screenX = screenXFspaceX(s.xValAt(ts));	// gets coordinates of b,
 			int screenY = screenYFspaceY(s.yValAt(ts));	// and offsets appropriately
-			shipLocations.put(s, new Point((int)screenX, (int)screenY));
+			locations.put(s.getID(), new Point((int)screenX, (int)screenY));
 			
-			for (Order o: game.getOrders()) {	// draws orders
+			for (Order o: orders) {	// draws orders
 				final double to = game.observedTime(o, t0);
 				if (o.existsAt(to) && o.getShip() == s.getID()) {
 					final double r = game.dist(s, o, ts, to) - o.rValAt(to);
@@ -236,9 +284,10 @@ public class GameScreen extends JPanel {
 				img = getSprite(s.spriteName());	// finds the correct sprite
 			
 			
-			Point screenPos = shipLocations.get(s);
+			Point screenPos = locations.get(s.getID());
 			g.drawImage(img, screenPos.x - img.getWidth()/2, screenPos.y - img.getHeight()/2, null);
 		}
+		shipLocations = locations;
 	}
 	
 	
@@ -286,33 +335,33 @@ public class GameScreen extends JPanel {
 		else
 			g.drawImage(icons.get("button2_of"), this.getWidth()-200, this.getHeight()-400, null);
 		
-		if (activeShip == null)		return;	// if there's no selected ship, that's the end of it
-		try {								// otherwise, draw more HUD
-			if (game.started)	// adjust for information delay
-				t = game.observedTime(activeShip, t);
-			if (!activeShip.existsAt(t))	return;	// if the ship is dead, don't show the HUD
-			
-			final Point hudPos = new Point(1050, 30);
-			g.drawImage(icons.get("bars"), hudPos.x, hudPos.y, null);	// draw more HUD stuff
-			
-			AffineTransform at;		// these classes help with the HP/PP bars
-			AffineTransformOp op;
-			BufferedImage mask;
-			
-			final double hTheta = Math.PI/2 - activeShip.hValAt(t)/Ship.MAX_H_VALUE*Math.PI/2;
-			at = new AffineTransform();			// start with an AffineTransform
-			at.rotate(hTheta, 200, 200);		// set it to rotate based on health
-			op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-			mask = op.filter(icons.get("health_mask"), null).getSubimage(200,0,200,200);	// now rotate the mask and draw it over the bars
-			g.drawImage(mask, hudPos.x, hudPos.y, null);
-			
-			final double eTheta = -Math.PI/2 + activeShip.eValAt(t)/Ship.MAX_E_VALUE*Math.PI/2;
-			at = new AffineTransform();			// repeat for energy bar
-			at.rotate(eTheta, 0, 200);
-			op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-			mask = op.filter(icons.get("energy_mask"), null).getSubimage(0, 0, 200, 200);
-			g.drawImage(mask, hudPos.x, hudPos.y, null);
-		} catch (NullPointerException e) {}	// it might throw a NullPointerException if listener modifies activeShip at the wrong moment
+		final Ship selected = (activeShip >= 0) ? game.getShip(activeShip) : null;
+		if (selected == null)	return;	// if there's no selected ship, that's the end of it
+		
+		if (game.started)	// otherwise, adjust for information delay
+			t = game.observedTime(selected, t);
+		if (!selected.existsAt(t))	return;	// if the ship is dead, don't show the HUD
+		
+		final Point hudPos = new Point(1050, 30);
+		g.drawImage(icons.get("bars"), hudPos.x, hudPos.y, null);	// draw more HUD stuff
+		
+		AffineTransform at;		// these classes help with the HP/PP bars
+		AffineTransformOp op;
+		BufferedImage mask;
+		
+		final double hTheta = Math.PI/2 - selected.hValAt(t)/Ship.MAX_H_VALUE*Math.PI/2;
+		at = new AffineTransform();			// start with an AffineTransform
+		at.rotate(hTheta, 200, 200);		// set it to rotate based on health
+		op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+		mask = op.filter(icons.get("health_mask"), null).getSubimage(200,0,200,200);	// now rotate the mask and draw it over the bars
+		g.drawImage(mask, hudPos.x, hudPos.y, null);
+		
+		final double eTheta = -Math.PI/2 + selected.eValAt(t)/Ship.MAX_E_VALUE*Math.PI/2;
+		at = new AffineTransform();			// repeat for energy bar
+		at.rotate(eTheta, 0, 200);
+		op = new AffineTransformOp(at, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+		mask = op.filter(icons.get("energy_mask"), null).getSubimage(0, 0, 200, 200);
+		g.drawImage(mask, hudPos.x, hudPos.y, null);
 	}
 	
 	
@@ -384,14 +433,12 @@ public class GameScreen extends JPanel {
 	
 	
 	private void loadSounds() {
-		sounds = new HashMap<String, AudioClip>();
+		sounds = new AudioClip[SoundQueue.NAMES.length];
 		
-		File[] files = new File("assets/sounds").listFiles();
-		for (File f: files) {	// for every file in that folder
+		for (int i = 0; i < sounds.length; i ++) {	// for every sound there is
+			final File f = new File("assets/sounds/"+SoundQueue.NAMES[i]+".wav");
 			try {
-				int i = f.getName().lastIndexOf('.');	// find the extension
-				if (i != -1 && f.getName().endsWith(".wav"))	// if it is a wav file
-					sounds.put(f.getName().substring(0,i), Applet.newAudioClip(f.toURI().toURL()));	// put it in the HashMap
+				sounds[i] = Applet.newAudioClip(f.toURI().toURL());	// put it in the array under its ID
 			} catch (IOException e) {
 				System.err.println("Something went wrong with "+f);	// I see no reason this error would ever throw
 			}
@@ -477,17 +524,16 @@ public class GameScreen extends JPanel {
 		if (x < 200   && y < 400)	return -2;	// move button
 		if (x < 200   && y >= 400)	return -3;	// shoot button
 		if (x >= 1080 && y >= 400)	return -4;	// special button
-		final List<Ship> ships = game.getShips();
-		for (int i = ships.size()-1; i >= 0; i --) {
-			final Ship s = ships.get(i);
-			if (s.isBlue()) {
-				final Point p = shipLocations.get(s);
-				if (p != null)
-					if (Math.hypot(x - p.x, y - p.y) < 20)
-						return s.getID();	// a ship
-			}
-		}
-		return -1;	// empty space
+		byte found = -1;	// empty space
+		for (Map.Entry<Byte, Point> e: shipLocations.entrySet())	// (going by the last frame, which is the one at t)
+			if (Math.hypot(x - e.getValue().x, y - e.getValue().y) < 20)
+				found = e.getKey();	// a ship (the one on top, if they overlap)
+		return found;
+	}
+	
+	
+	public double getFrameTime() {	// the time the last frame showed
+		return frameTime;
 	}
 	
 	
@@ -521,8 +567,8 @@ public class GameScreen extends JPanel {
 	
 	
 	public boolean setShip(byte id) {			// sets the activeShip field to the one with the matching id
-		activeShip = game.getShipByID(id);
-		return activeShip != null;	// returns whether that ship exists
+		activeShip = shipLocations.containsKey(id) ? id : -1;	// as long as it was drawn in the last frame
+		return activeShip >= 0;	// returns whether that ship exists
 	}
 
 }
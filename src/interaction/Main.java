@@ -78,7 +78,8 @@ public class Main {
 	
 	
 	public void startGame(Connection c) {	// either join or host a game
-		Battlefield bf = new Battlefield(c.getOutput(), c.getOffset(), c.isHost());
+		Battlefield bf = new Battlefield(c.getSink(), c.getOffset(), c.isHost(), c.getSeed(), c.getScenario());	// (which the connection checked)
+		bf.setRollback(true);
 		lookAt(bf, c.isHost());
 		Client.startListening(c.getInput(), bf);
 	}
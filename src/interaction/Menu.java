@@ -40,6 +40,7 @@ import javax.imageio.ImageIO;
 import javax.swing.JPanel;
 
 import network.Connection;
+import network.ConnectionListener;
 
 /**
  * The JPanel that shows the main menu, instructions menu, etc. when not in a
@@ -48,7 +49,7 @@ import network.Connection;
  * @author jkunimune
  * @version 1.0
  */
-public class Menu extends JPanel {
+public class Menu extends JPanel implements ConnectionListener {
 
 	private static final long serialVersionUID = -6605421223497517651L;
 	
@@ -313,6 +314,7 @@ public class Menu extends JPanel {
 	}
 	
 	
+	@Override
 	public void queueGame(Connection c) {	// prepare to start the game in the next loop iteration
 		queuedGame = c;
 	}
@@ -326,12 +328,20 @@ public class Menu extends JPanel {
 	}
 	
 	
+	@Override
 	public void joinFailed() {	// report an error
 		abort();
 		goToMenu(menuPos+"/fail");
 	}
 	
 	
+	@Override
+	public void mapMismatch() {	// report a different error
+		abort();
+		goToMenu(menuPos+"/diff");
+	}
+	
+	
 	private void goToMenu(String newMenuPos) {	// change the menu screen to seomthing else
 		menuPos = newMenuPos;
 		listener.deleteTextbox();
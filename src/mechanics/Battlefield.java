@@ -21,9 +21,20 @@
  */
 package mechanics;
 
-import java.io.DataOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import mechanics.ship_classes.Carrier;
 import network.Protocol;
 
@@ -34,20 +45,56 @@ import network.Protocol;
  * @author	jkunimune
  * @version	1.0
  */
-public class Battlefield {
+public class Battlefield implements Serializable {
 
+	private static final long serialVersionUID = 1L;
+	
+	public static final double MAP_RADIUS = 2500000000.0*Univ.m;	// the distance from the center beyond which nothing matters
+	public static final double HORIZON = 2*MAP_RADIUS/Univ.c;	// the longest it could take news of anything to reach us
+	public static final double LOOKBACK = 2*HORIZON;	// the farthest back anything can be seen (news reaches us by way of our ships)
+	
+	public static final double COMPACTION_INTERVAL = HORIZON/8;	// how often to throw out history that's older than the lookback
+	
 	private static final double VICTORY_DELAY = 5*Univ.s;	// the time between game end and return to menu
 	
 	
 	private ArrayList<Body> bodies;		// the list of game elements
+	private ArrayList<Planet> planets;	// the obstacles, which never move and so are kept apart from bodies
+	private ArrayList<Body> newBodies;	// bodies that have been spawned but not yet committed to bodies
+	private transient ArrayList<String> inbox;	// messages waiting to be handled at the start of the next update
+	private transient ArrayList<Boolean> inboxTransmit;	// whether each of those messages should be broadcast
+	private transient ArrayList<String> messages;		// the messages being handled in this update
+	private transient ArrayList<Boolean> transmits;
 	private ArrayList<Ship> myShips;	// the list of blue ships
 	private ArrayList<Order> orders;	// the list of orders in effect
+	private SoundQueue sounds;		// every sound anything is going to make
+	private transient double heard;	// the last time the sounds were drained (which a rollback doesn't undo)
+	private transient boolean soundsRestored;	// whether a rollback has brought back sounds that were already played
+	private Debris debris;			// every speck anything has thrown off
+	private transient SpatialHash grid;	// the broad phase for collisions
+	private transient StaticIndex statics;	// the broad phase for the planets
+	private transient Wavefronts wavefronts;	// the broad phase for pings and orders, which would overlap everything in the grid
+	private transient BitSet live;	// which bodies existed at the start of this update
+	private HashMap<String, Integer> archive;	// how many bodies of each kind have been retired for good
+	private transient Observation view;	// what the fleet could see the last time anyone asked
+	private transient LightConeIndex cones;	// where everything has been lately, for seeing lots of things at once
+	private KineticEngine engine;	// the event-driven simulation core, if it's switched on
+	private transient ForkJoinPool pool;	// the threads that check for contacts, if parallel mode is on
+	private transient boolean[] touching;	// which candidate pairs the pool found to be touching
 	private Carrier myCarrier;		// the main carrier
 	private Carrier yourCarrier;		// the opponent carrier
 	private PlacementRegion validRegion;	// where we can place ships
-	private DataOutputStream out;		// the stream to write all events to
-	
+	private transient EventSink out;	// where to send all of our own events
+	private transient SimClock clock;	// where the time comes from
+	private transient Journal journal;	// where to record everything that happens, if anywhere
+	private Rollback rollback;	// the recent past, for orders that show up late (which keyframes keep, so replays rewind the same way)
+	private transient boolean resimulating;	// whether this update is a redo of one that already happened
+	
+	private long seed;			// the number that all randomness is derived from, agreed on with the opponent
+	private double time;		// the time everything has been brought up to
 	private double endGame;		// the time the game ended
+	private boolean victoryAnnounced;	// whether our carrier's death has gone out (which a rollback doesn't undo)
+	private double nextCompaction;	// the next time to throw out old history
 	private byte[] blueIDs;		// the IDs of the ships we own
 	private double offset;		// the time offset for network conversions
 	
@@ -57,11 +104,39 @@ public class Battlefield {
 	public String message;				// a public phrase for the GameScreen to print out
 	
 	
-	public Battlefield(DataOutputStream dos, double dt, boolean host) {
+	public Battlefield(EventSink sink, double dt, boolean host, long seed) {
+		this(sink, dt, host, seed, Scenario.JUPITER);
+	}
+	
+	
+	public Battlefield(EventSink sink, double dt, boolean host, long seed, Scenario map) {
+		this(sink, dt, host, seed, map, new RealTimeClock());
+	}
+	
+	
+	public Battlefield(EventSink sink, double dt, boolean host, long seed, SimClock simClock) {
+		this(sink, dt, host, seed, Scenario.JUPITER, simClock);
+	}
+	
+	
+	public Battlefield(EventSink sink, double dt, boolean host, long seed, Scenario map, SimClock simClock) {
+		this.seed = seed;
+		clock = simClock;
 		bodies = new ArrayList<Body>();
+		newBodies = new ArrayList<Body>();
+		inbox = new ArrayList<String>();
+		inboxTransmit = new ArrayList<Boolean>();
+		messages = new ArrayList<String>();
+		transmits = new ArrayList<Boolean>();
 		myShips = new ArrayList<Ship>();
 		orders = new ArrayList<Order>();
-		out = dos;
+		sounds = new SoundQueue();
+		heard = Double.NEGATIVE_INFINITY;
+		debris = new Debris();
+		grid = new SpatialHash();
+		live = new BitSet();
+		archive = new HashMap<String, Integer>();
+		out = sink;
 		endGame = Double.POSITIVE_INFINITY;
 		
 		opponentReady = false;
@@ -69,9 +144,11 @@ public class Battlefield {
 		started = false;
 		message = "";
 		
-		double time = (double)System.currentTimeMillis();	// the current time
+		time = clock.now();	// the current time
+		wavefronts = new Wavefronts(bodies, time);
 		validRegion = PlacementRegion.placementRegion(time, this, host);
-		bodies.add(new Planet(0, 0, 43441*Univ.mi, "Jupiter", time, this));
+		planets = new ArrayList<Planet>(map.build(time, this));
+		statics = new StaticIndex(planets, time);
 		
 		if (host) {
 			byte[] temp = {0, 1, 2, 3, 4};
@@ -90,7 +167,50 @@ public class Battlefield {
 	}
 	
 	
-	public void receive(String data, boolean transmit) {		// receives and interprets some data
+	public void receive(String data, boolean transmit) {	// receives some data, to be interpreted at the start of the next update
+		synchronized (inbox) {		// (this gets called from the network and input threads, so it can't touch anything yet)
+			inbox.add(data);
+			inboxTransmit.add(transmit);
+		}
+	}
+	
+	
+	private void readInbox(double t) {	// takes all the data that has been received since the last update
+		synchronized (inbox) {
+			messages.clear();
+			transmits.clear();
+			messages.addAll(inbox);
+			transmits.addAll(inboxTransmit);
+			inbox.clear();
+			inboxTransmit.clear();
+		}
+		
+		if (journal != null) {
+			journal.tick(t);	// (this goes before the messages, so a replay knows when they arrived)
+			for (int i = 0; i < messages.size(); i ++)
+				journal.message(messages.get(i), transmits.get(i));
+		}
+		
+		if (out != null) {	// broadcast everything that came from us exactly once, now, so that it goes out
+			for (int i = 0; i < messages.size(); i ++)	// even if it ends up resimulated or rewound into the past
+				if (transmits.get(i))
+					out.emit(messages.get(i));
+		}
+		
+		if (rollback != null) {	// orders from the other side that should have happened before the last update get put
+			for (int i = messages.size()-1; i >= 0; i --) {	// where they belong (our own are never late; they just happen)
+				final String data = messages.get(i);
+				if (!transmits.get(i) && Protocol.isOrder(data) && Protocol.getOT(data, offset) < time &&
+						rollback.rewind(Protocol.getOT(data, offset), data, transmits.get(i))) {
+					messages.remove(i);
+					transmits.remove(i);
+				}
+			}
+		}
+	}
+	
+	
+	private void handle(String data, boolean transmit) {		// interprets some data
 		if (Protocol.isReadiness(data)) {	// if someone is ready
 			if (transmit)	usReady = true;
 			else			opponentReady = true;	// keep track of who is ready to play
@@ -109,57 +229,504 @@ public class Battlefield {
 			System.err.println("I haven't programmed that yet.");
 		}
 		else if (Protocol.isVictory(data)) {	// if someone won
-			endGame = (double)System.currentTimeMillis() + VICTORY_DELAY;
-			message = getMessage(Protocol.getVCondition(data));
+			if (endGame == Double.POSITIVE_INFINITY) {	// (and nobody had yet, since a replay hears it from the journal too)
+				endGame = time + VICTORY_DELAY;
+				message = getMessage(Protocol.getVCondition(data));
+			}
 		}
 		else {
 			System.err.println("Wait, what does '"+data+"' mean?");
 		}
 		
-		if (transmit && out != null) {	// if you got it from a non-network source
-			try {
-				out.writeUTF(data);		// broadcast it
-			} catch (IOException e) {}
+		if (rollback != null)
+			rollback.message(data, transmit);
+	}
+	
+	
+	public void announceVictory(byte condition) {	// ends the game, but only once, however many times resimulating
+		if (!victoryAnnounced) {						// brings it about
+			victoryAnnounced = true;
+			receive(Protocol.denoteVictory(condition));
 		}
 	}
 	
 	
 	public void update() {	// updates all bodies that need to be updated and collides anything close enough to collide
-		double t = (double)System.currentTimeMillis();
+		update(clock.now());
+	}
+	
+	
+	public void tick(double dt) {	// moves the game forward by dt, for headless runs
+		advanceTo(time + dt);
+	}
+	
+	
+	public void advanceTo(double t) {	// brings everything up to time t, dragging a ManualClock along with it
+		if (clock instanceof ManualClock)
+			((ManualClock) clock).set(t);	// so that everything that asks the clock agrees with us
+		update(t);
+	}
+	
+	
+	public void update(double t) {	// brings everything up to time t
+		readInbox(t);
+		advance(t, messages, transmits);
+	}
+	
+	
+	void resimulate(double t, List<String> data, List<Boolean> transmit) {	// redoes an update that a rollback undid
+		resimulating = true;
+		advance(t, data, transmit);
+		resimulating = false;
+	}
+	
+	
+	private void advance(double t, List<String> data, List<Boolean> transmit) {	// handles some messages and brings everything up to time t
+		time = t;
+		view = null;	// anything could change now, so forget what we saw
+		if (rollback != null)
+			rollback.tick(t);
+		for (int i = 0; i < data.size(); i ++)
+			handle(data.get(i), transmit.get(i));
+		commit();
+		reap(t);
+		
+		if (engine != null)	// the event-driven core can jump straight there
+			engine.advanceTo(t);
+		else
+			step(t);
+		
+		if (rollback != null && rollback.checkpointDue(t))
+			rollback.checkpoint(t);
+		if (journal != null && !resimulating && journal.keyframeDue(t))
+			journal.keyframe(t, this);	// (after the checkpoint, so that a replay starting here has the same ones)
+	}
+	
+	
+	private void step(double t) {	// checks every pair that might be touching and updates everything, one frame at a time
+		final int n = bodies.size();
+		live.clear();
+		grid.clear();
+		for (int i = 0; i < n; i ++) {	// sort everything that exists into the grid
+			final Body b = bodies.get(i);
+			if (b.existsAt(t)) {
+				live.set(i);
+				if (!Wavefronts.isFront(b))
+					grid.add(i, b.kind(), b.xValAt(t), b.yValAt(t), b.interactionRadius(t));
+			}
+		}
 		
-		for (int i = bodies.size()-1; i > 0; i --) {
+		final int numPairs = grid.findPairs();	// the pairs come out in the same order as an all-pairs loop
+		final boolean parallel = pool != null && numPairs > ContactSearch.CHUNK_SIZE;
+		if (parallel) {		// if there are enough pairs, check them all for contact in parallel first
+			if (touching == null || touching.length < numPairs)
+				touching = new boolean[Math.max(numPairs, 2*ContactSearch.CHUNK_SIZE)];
+			pool.invoke(new ContactSearch(grid, bodies, t, touching, 0, numPairs));
+		}
+		
+		int lastI = -1;
+		boolean b1Exists = false;
+		for (int p = 0; p < numPairs; p ++) {	// then carry out the interactions in order
+			if (parallel && !touching[p])
+				continue;	// (pairs that aren't touching would do nothing anyway)
+			final int i = grid.firstOf(p);
 			final Body b1 = bodies.get(i);
-			if (b1.existsAt(t)) {
-				for (int j = 0; j < i; j ++) {
-					final Body b2 = bodies.get(j);
-					if (b2.existsAt(t)) {
-						b1.interactWith(b2, t);
-						b2.interactWith(b1, t);
-					}
+			if (i != lastI) {			// like the all-pairs loop, only check b1 once per row
+				b1Exists = b1.existsAt(t);
+				lastI = i;
+			}
+			if (b1Exists) {
+				final Body b2 = bodies.get(grid.secondOf(p));
+				if (b2.existsAt(t)) {
+					b1.touch();
+					b2.touch();
+					b1.interactWith(b2, t);
+					b2.interactWith(b1, t);
+				}
+			}
+		}
+		
+		final int staticTargets = statics.targets();	// then check everything that can hit a planet against the planets near it
+		for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i+1)) {
+			final Body b = bodies.get(i);
+			if ((staticTargets & (1 << b.kind())) == 0)
+				continue;
+			final int numNear = statics.query(b.xValAt(t), b.yValAt(t), b.interactionRadius(t));
+			for (int k = 0; k < numNear && b.existsAt(t); k ++) {
+				final Planet p = planets.get(statics.get(k));
+				b.touch();
+				p.interactWith(b, t);
+				b.interactWith(p, t);
+			}
+		}
+		
+		final int numCrossings = wavefronts.findCrossings(t);	// then do the same for whatever the fronts just swept over
+		for (int p = 0; p < numCrossings; p ++) {
+			final Body b1 = wavefronts.frontOf(p);
+			final Body b2 = wavefronts.bodyOf(p);
+			if (b1.existsAt(t) && b2.existsAt(t)) {
+				b1.touch();
+				b2.touch();
+				b1.interactWith(b2, t);
+				b2.interactWith(b1, t);
+			}
+		}
+		
+		for (int i = live.nextSetBit(0); i >= 0; i = live.nextSetBit(i+1))	// then carry out whatever had to wait until
+			bodies.get(i).resolve(t);										// everything had been checked
+		
+		commit();	// add anything that got spawned during the interactions
+		for (int i = bodies.size()-1; i >= n; i --)	// update anything that got spawned just now
+			updateBody(bodies.get(i), t);
+		for (int i = live.previousSetBit(n-1); i >= 0; i = live.previousSetBit(i-1))	// and everything that was already live
+			updateBody(bodies.get(i), t);
+		commit();	// and anything that got spawned during the updates will get its turn next time
+	}
+	
+	
+	void updateBody(Body b, double t) {	// updates one body, if it exists
+		if (b.existsAt(t)) {
+			b.touch();
+			b.update(t);
+		}
+	}
+	
+	
+	void commit() {	// adds everything that has been spawned since the last commit to bodies, all at once
+		synchronized (newBodies) {
+			if (newBodies.isEmpty())	return;
+			bodies.ensureCapacity(bodies.size() + newBodies.size());
+			for (Body b: newBodies) {
+				grid.declare(b.kind(), b.interactsWith());	// make sure the broad phase knows what it cares about
+				bodies.add(b);
+				if (engine != null)
+					engine.add(b);
+				else
+					wavefronts.add(b);
+			}
+			newBodies.clear();
+		}
+	}
+	
+	
+	private void reap(double t) {	// moves bodies that can never be seen again out of bodies and into the archive
+		final boolean compacting = t >= nextCompaction;	// and every so often, forgets history nobody can see anymore
+		if (compacting)
+			nextCompaction = t + COMPACTION_INTERVAL;
+		int k = 0;
+		for (int i = 0; i < bodies.size(); i ++) {
+			final Body b = bodies.get(i);
+			if (b.endTime() + LOOKBACK < t) {	// if news of its end has reached every ship and been relayed back to us
+				final String kind = b.getClass().getSimpleName();
+				final Integer count = archive.get(kind);
+				archive.put(kind, (count == null) ? 1 : count+1);
+			}
+			else {
+				bodies.set(k, b);	// otherwise, keep it (in the same order)
+				k ++;
+				if (compacting) {
+					b.touch();	// (which also means everything gets saved fresh every so often, so old saves can go)
+					b.compact(t - LOOKBACK);
 				}
 			}
 		}
+		bodies.subList(k, bodies.size()).clear();
+		
+		final int specks = debris.reap(t);	// debris doesn't take up a Body each, but it should still count
+		if (specks > 0) {
+			final Integer count = archive.get("Debris");
+			archive.put("Debris", (count == null) ? specks : count+specks);
+		}
 		
-		for (int i = bodies.size()-1; i >= 0; i --)
-			if (bodies.get(i).existsAt(t))
-				bodies.get(i).update(t);
+		for (int i = orders.size()-1; i >= 0; i --)
+			if (orders.get(i).endTime() + LOOKBACK < t)
+				orders.remove(i);
+	}
+	
+	
+	public void setEventDriven(boolean on) {	// switches between stepping every frame and jumping between events
+		if (on && engine == null) {
+			commit();
+			engine = new KineticEngine(this, bodies, clock.now());
+		}
+		else if (!on && engine != null) {
+			engine = null;
+			wavefronts = new Wavefronts(bodies, time);	// the fronts weren't being tracked in the meantime
+		}
+	}
+	
+	
+	public void setRollback(boolean on) {	// switches whether late orders rewind the game to when they were sent
+		if (on && rollback == null)
+			rollback = new Rollback(this);
+		else if (!on)
+			rollback = null;
+	}
+	
+	
+	public void setParallel(boolean on) {	// switches the contact checks between one thread and all of them
+		if (on)	pool = ForkJoinPool.commonPool();
+		else	pool = null;
 	}
 	
 	
 	public boolean active() {	// is the game still going?
-		return System.currentTimeMillis() < endGame;
+		return clock.now() < endGame;
 	}
 	
 	
-	public double observedTime(Body b, double t) {	// the time at which you see this object
-		double to = Double.NaN;
-		for (Ship s: getShips()) {		// check each ship
-			final double ts = s.sees(b, myCarrier.sees(s, t));	// when would you see that ship see b?
-			if ((Double.isNaN(to) && !Double.isNaN(ts)) || ts > to)	// if that ship has the best observation time (and is not NaN)
-				to = ts;		// then choose that time
+	public double now() {	// the current simulation time
+		return clock.now();
+	}
+	
+	
+	public SimClock getClock() {
+		return clock;
+	}
+	
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	
+	void changed(Body b) {	// hears that b has changed course or stopped existing differently than planned
+		if (engine == null)	// (the engine checks for this on its own)
+			wavefronts.changed(b);
+	}
+	
+	
+	long seedFor(Body b) {	// a random seed that depends only on the game's seed and how b was born,
+		final double t0 = b.birthTime();	// so it comes out the same no matter what order things get spawned in
+		long key = seed;
+		key = 31*key + Double.doubleToLongBits(t0);
+		key = 31*key + Double.doubleToLongBits(b.xValAt(t0));
+		key = 31*key + Double.doubleToLongBits(b.yValAt(t0));
+		key = 31*key + Double.doubleToLongBits(b.vxValAt(t0));
+		key = 31*key + Double.doubleToLongBits(b.vyValAt(t0));
+		key = 31*key + b.kind();
+		return key;
+	}
+	
+	
+	public void record(Journal j) {	// starts writing everything that happens to a journal
+		journal = j;
+		journal.keyframe(time, this);	// starting with the way things are now
+	}
+	
+	
+	public Journal getJournal() {
+		return journal;
+	}
+	
+	
+	void attach(EventSink sink, SimClock simClock) {	// reconnects a Battlefield that was loaded from a keyframe
+		out = sink;
+		clock = simClock;
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	void loadState(byte[][] state) {	// goes back to a state from saveState
+		final Object[] parts = readState(state, true);
+		bodies = (ArrayList<Body>) parts[0];
+		newBodies = (ArrayList<Body>) parts[1];
+		myShips = (ArrayList<Ship>) parts[2];
+		orders = (ArrayList<Order>) parts[3];
+		sounds = (SoundQueue) parts[4];
+		debris = (Debris) parts[5];
+		archive = (HashMap<String, Integer>) parts[6];
+		engine = (KineticEngine) parts[7];
+		myCarrier = (Carrier) parts[8];
+		yourCarrier = (Carrier) parts[9];
+		validRegion = (PlacementRegion) parts[10];
+		message = (String) parts[11];
+		time = (Double) parts[12];
+		endGame = (Double) parts[13];
+		opponentReady = (Boolean) parts[14];
+		usReady = (Boolean) parts[15];
+		started = (Boolean) parts[16];
+		view = null;
+		cones = null;
+		wavefronts = new Wavefronts(bodies, time);
+		soundsRestored = true;	// (the player has already heard some of these)
+		for (Planet p: planets)	// the bodies are all new copies, but the planets stay put, so they have to forget the
+			p.forgetSightlines();	// old copies of the ships that looked at them
+	}
+	
+	
+	byte[][] saveState() {	// copies everything that changes over the course of a game, but not this Battlefield itself
+		return writeState(new Object[] {bodies, newBodies, myShips, orders, sounds, debris, archive, engine,
+				myCarrier, yourCarrier, validRegion, message, time, endGame, opponentReady, usReady, started});
+	}
+	
+	
+	byte[][] repack(byte[][] state) {	// the same state from saveState, but with only the bodies it still uses, all in
+		return writeState(readState(state, false));	// one batch (which is smaller, but takes as long as a full save)
+	}
+	
+	
+	private byte[][] writeState(Object[] parts) {
+		final IdentityHashMap<Body, Slot> slots = new IdentityHashMap<Body, Slot>();
+		final IdentityHashMap<byte[], Integer> batchNumbers = new IdentityHashMap<byte[], Integer>();
+		final ArrayList<byte[]> batches = new ArrayList<byte[]>();	// the earlier batches of bodies this still uses
+		final ArrayList<Body> fresh = new ArrayList<Body>();		// and the bodies that have to be saved again
+		batches.add(null);	// (the first array is everything but the bodies, and the second is the fresh ones)
+		batches.add(null);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+					{ enableReplaceObject(true); }
+					@Override
+					protected Object replaceObject(Object obj) {	// the bodies will need to point at this one, not a copy
+						if (obj == Battlefield.this)
+							return Self.BATTLEFIELD;
+						if (obj instanceof Body) {	// and each body just gets a slot in one of the batches
+							final Body b = (Body) obj;
+							Slot slot = slots.get(b);
+							if (slot == null) {
+								if (b.savedIn() == null) {	// it goes in the fresh batch if it might have changed
+									slot = new Slot(1, fresh.size());
+									fresh.add(b);
+								}
+								else {						// or stays where it was if it hasn't
+									Integer k = batchNumbers.get(b.savedIn());
+									if (k == null) {
+										k = batches.size();
+										batchNumbers.put(b.savedIn(), k);
+										batches.add(b.savedIn());
+									}
+									slot = new Slot(k, b.savedAt());
+								}
+								slots.put(b, slot);
+							}
+							return slot;
+						}
+						return obj;
+					}
+				}) {
+			out.writeObject(parts);
+		} catch (IOException e) {
+			throw new IllegalStateException("could not save the state of this Battlefield", e);
 		}
+		batches.set(0, bytes.toByteArray());
 		
-		return to;		// return the best time
+		final byte[] batch = saveBodies(fresh);	// all the bodies that changed go in one stream, so that it's only
+		for (int i = 0; i < fresh.size(); i ++)	// as expensive as it needs to be
+			fresh.get(i).saved(batch, i);
+		batches.set(1, batch);
+		return batches.toArray(new byte[batches.size()][]);
+	}
+	
+	
+	private Object[] readState(byte[][] state, boolean reuse) {	// reads a state back, either to use or just to copy
+		final Body[][] batches = new Body[state.length][];
+		try (ObjectInputStream in = openState(state, 0, batches, reuse)) {
+			return (Object[]) in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new IllegalStateException("could not load a state this Battlefield saved", e);
+		}
+	}
+	
+	
+	private byte[] saveBodies(List<Body> batch) {	// saves a batch of bodies, which mustn't refer to each other
+		final Set<Body> members = Collections.newSetFromMap(new IdentityHashMap<Body, Boolean>());
+		members.addAll(batch);
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+					{ enableReplaceObject(true); }
+					@Override
+					protected Object replaceObject(Object obj) {
+						if (obj == Battlefield.this)
+							return Self.BATTLEFIELD;
+						else if (obj instanceof Body && !members.contains(obj))
+							throw new IllegalStateException("a body can only be saved separately if it doesn't refer to others");
+						else
+							return obj;
+					}
+				}) {
+			out.writeInt(batch.size());
+			for (Body b: batch)
+				out.writeObject(b);
+		} catch (IOException e) {
+			throw new IllegalStateException("could not save the bodies in this Battlefield", e);
+		}
+		return bytes.toByteArray();
+	}
+	
+	
+	private ObjectInputStream openState(final byte[][] state, int k, final Body[][] batches, final boolean reuse)
+			throws IOException {
+		return new ObjectInputStream(new ByteArrayInputStream(state[k])) {	// reads one part of a state from saveState
+			{ enableResolveObject(true); }
+			@Override
+			protected Object resolveObject(Object obj) throws IOException {	// putting this Battlefield and the bodies back
+				if (obj == Self.BATTLEFIELD)
+					return Battlefield.this;
+				if (obj instanceof Slot) {
+					final Slot slot = (Slot) obj;
+					if (batches[slot.batch] == null)	// each batch gets loaded the first time anything in it is needed
+						batches[slot.batch] = loadBodies(state, slot.batch, batches, reuse);
+					return batches[slot.batch][slot.index];
+				}
+				return obj;
+			}
+		};
+	}
+	
+	
+	private Body[] loadBodies(byte[][] state, int k, Body[][] batches, boolean reuse) throws IOException {	// loads a batch of bodies
+		try (ObjectInputStream in = openState(state, k, batches, reuse)) {
+			final Body[] batch = new Body[in.readInt()];
+			for (int i = 0; i < batch.length; i ++) {
+				batch[i] = (Body) in.readObject();
+				if (reuse)
+					batch[i].saved(state[k], i);	// (it's exactly what got saved, so that can be reused until it changes)
+			}
+			return batch;
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+	
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {	// rebuilds the parts that keyframes leave out
+		in.defaultReadObject();
+		inbox = new ArrayList<String>();
+		inboxTransmit = new ArrayList<Boolean>();
+		messages = new ArrayList<String>();
+		transmits = new ArrayList<Boolean>();
+		heard = Double.NEGATIVE_INFINITY;
+		grid = new SpatialHash();
+		live = new BitSet();
+		for (Body b: bodies)
+			grid.declare(b.kind(), b.interactsWith());
+		statics = new StaticIndex(planets, time);
+		wavefronts = new Wavefronts(bodies, time);
+	}
+	
+	
+	public double observedTime(Body b, double t) {	// the time at which you see this object
+		return observe(t).observedTime(b);
+	}
+	
+	
+	public Observation observe(double t) {	// a snapshot of what the fleet sees at time t
+		Observation v = view;
+		if (v == null || v.getTime() != t) {	// reuse the last one if nothing has changed
+			v = new Observation(myCarrier, myShips, t, (bodies.size() >= LightConeIndex.MIN_BODIES) ? lightCones(t) : null);
+			view = v;
+		}
+		return v;
+	}
+	
+	
+	public LightConeIndex lightCones(double t) {	// an index of recent paths that can answer light-cone queries up to t
+		LightConeIndex c = cones;
+		if (c == null || !c.fresh(t, bodies.size())) {	// rebuild it once it gets too old or too much has been added
+			c = new LightConeIndex(bodies, t);
+			cones = c;
+		}
+		return c;
 	}
 	
 	
@@ -169,7 +736,7 @@ public class Battlefield {
 	
 	
 	public final double dist(Body b1, Body b2, double t1, double t2) {	// calculates distance between two bodies
-		return Math.hypot(b1.xValAt(t1)-b2.xValAt(t2), b1.yValAt(t1)-b2.yValAt(t2));
+		return b1.pos.distanceTo(b2.pos, t1, t2);
 	}
 	
 	
@@ -193,11 +760,12 @@ public class Battlefield {
 		final double x = Protocol.getPX(info);
 		final double y = Protocol.getPY(info);
 		final byte id = Protocol.getPID(info);
-		final double t = System.currentTimeMillis();
+		final double t = time;
 		Ship s = Ship.buildShip(type, x, y, t, id, blue, this);
 		
 		if (s.isBlue()) {
 			myShips.add(s);
+			view = null;
 			if (s instanceof Carrier)
 				myCarrier = (Carrier) s;
 		}
@@ -215,14 +783,47 @@ public class Battlefield {
 	}
 	
 	
-	public void spawn(Body b) {	// adds a new body to the battlefield
-		bodies.add(b);
+	SoundQueue getSounds() {
+		return sounds;
 	}
 	
 	
-	@SuppressWarnings("unchecked")
-	public ArrayList<Body> getBodies() {
-		return (ArrayList<Body>) bodies.clone();
+	public Debris getDebris() {	// debris only changes during update, so there's no need to copy it
+		return debris;
+	}
+	
+	
+	public int drainSounds(double t, byte[] out) {	// fills out with the IDs of every sound the player can now hear, and returns how many
+		if (soundsRestored) {	// after a rollback, forget everything that was already heard the first time around
+			sounds.forget(heard, this);
+			soundsRestored = false;
+		}
+		heard = t;
+		return sounds.drain(t, this, out);
+	}
+	
+	
+	public void spawn(Body b) {	// adds a new body to the battlefield at the next commit
+		synchronized (newBodies) {
+			newBodies.add(b);
+		}
+	}
+	
+	
+	public void spawn(List<? extends Body> batch) {	// adds several at once
+		synchronized (newBodies) {
+			newBodies.addAll(batch);
+		}
+	}
+	
+	
+	public List<Body> getBodies() {	// bodies only changes during update, so there's no need to copy it
+		return Collections.unmodifiableList(bodies);
+	}
+	
+	
+	public List<Planet> getPlanets() {	// and planets never changes at all
+		return Collections.unmodifiableList(planets);
 	}
 	
 	
@@ -232,10 +833,24 @@ public class Battlefield {
 	}
 	
 	
+	@SuppressWarnings("unchecked")
+	public HashMap<String, Integer> getArchive() {	// returns the number of retired bodies of each kind
+		return (HashMap<String, Integer>) archive.clone();
+	}
+	
+	
+	public Ship getShip(byte id) {	// finds the blue ship with the matching id, whether or not anyone can see it
+		for (Ship s: myShips)
+			if (s.getID() == id)
+				return s;
+		return null;
+	}
+	
+	
 	public Ship getShipByID(byte id) {	// searches for the ship that has the matching id
 		for (Ship s: myShips)
 			if (s.getID() == id)
-				if (s.existsAt(myCarrier.sees(s, System.currentTimeMillis())))
+				if (s.existsAt(myCarrier.sees(s, clock.now())))
 					return s;
 		return null;
 	}
@@ -259,5 +874,26 @@ public class Battlefield {
 	public boolean isValid(double x, double y) {
 		return validRegion.contains(x, y);
 	}
+	
+	
+	
+	private static enum Self {	// stands in for the Battlefield in saved states
+		BATTLEFIELD
+	}
+	
+	
+	private static class Slot implements Serializable {	// stands in for a body in saved states, which get saved separately
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int batch;	// which array of the state it's in
+		private final int index;	// and which body in there it is
+		
+		
+		private Slot(int k, int i) {
+			this.batch = k;
+			this.index = i;
+		}
+	}
 
 }
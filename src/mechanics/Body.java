@@ -21,8 +21,7 @@
  */
 package mechanics;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.Serializable;
 
 /**
  * An object with mass, position, velocity, appearance, and ability to collide
@@ -31,37 +30,46 @@ import java.util.List;
  * @author	jkunimune
  * @version	1.0
  */
-public abstract class Body {
+public abstract class Body implements Serializable {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double[] DEFAULT_TRANSFORM = {0.0, 1.0, 1.0, 1.0};	// the default transformation (zero rotation, scale of 1, 100% opacity)
 	public static final double DEFAULT_LUMINOSITY = 1*Univ.kW;		// the default luminosity
+	public static final int NUM_BANDS = 2;		// the number of frequency bands things can be seen in
+	
+	public static final int SHIP = 0;		// body kind constants, for deciding what can interact with what
+	public static final int LASER = 1;
+	public static final int UV_LASER = 2;
+	public static final int GAS_CLOUD = 3;
+	public static final int PLANET = 4;
+	public static final int ORDER = 5;
+	public static final int PING = 6;
+	public static final int OTHER = 7;
+	public static final int NUM_KINDS = 8;
+	public static final int ALL_KINDS = (1 << NUM_KINDS) - 1;	// a mask containing every kind
+	
+	protected Trajectory pos;	// the set of positions that define the movement of this body over the course of the map
+	protected LightCurve[] lum;	// the luminosity spikes this object has encountered in each band
 	
-	protected List<double[]> pos;	// the set of positions that define the movement of this body over the course of the map
-	protected List<List<double[]>> lum;	// the set of luminosity spikes this object has encountered
-	
-	private ArrayList<Double> soundt;	// when it want to play sounds
-	private ArrayList<String> sound;	// the sounds it wants to play
 	protected Battlefield space;
+	private int version;	// goes up every time this changes in a way that could invalidate predictions about it
+	private long randomState;	// where this body is in its own stream of random numbers
+	private transient Sightline sightlines;	// where each observer found this last time it looked
+	private transient byte[] savedIn;	// the batch of bodies this was last saved in, if the Battlefield hasn't touched it since
+	private transient int savedAt;		// and where in there it is
 	
 	
 	
 	protected Body(double x0, double y0, double vx0, double vy0, double t0, Battlefield field) {
-		double[] init = new double[5];	// each array in pos must have five entries:
-		init[0] = t0;	// time
-		init[1] = x0;	// x position
-		init[2] = y0;	// y position
-		init[3] = vx0;	// x velocity
-		init[4] = vy0;	// y velocity
-		pos = new ArrayList<double[]>(1);
-		pos.add(init);
+		pos = new Trajectory(t0, x0, y0, vx0, vy0);
 		
-		lum = new ArrayList<List<double[]>>(2);
-		for (int i = 0; i < 2; i ++)
-			lum.add(new ArrayList<double[]>());	// there is one inner list for each band
+		lum = new LightCurve[NUM_BANDS];
+		for (int i = 0; i < NUM_BANDS; i ++)
+			lum[i] = new LightCurve();	// there is one for each band
 		
 		space = field;
-		soundt = new ArrayList<Double>();
-		sound = new ArrayList<String>();
+		randomState = space.seedFor(this);	// (this has to happen now, while the birth is still on record)
 	}
 	
 	
@@ -80,140 +88,250 @@ public abstract class Body {
 	public void interactWith(Body that, double t) {}	// determine if this should interact with that, and do it
 	
 	
+	public void resolve(double t) {}	// carry out anything interactWith put off until every pair had been checked
+	
+	
+	public boolean touches(Body that, double t) {	// whether interactWith could do anything to that at time t, judging only by
+		return false;								// where things are (this must not change anything, since it can run in parallel)
+	}
+	
+	
+	public int kind() {	// what kind of body this is
+		return OTHER;
+	}
+	
+	
+	public int interactsWith() {	// a bit mask of the kinds of bodies interactWith can do anything to
+		return 0;
+	}
+	
+	
+	public double interactionRadius(double t) {	// how close something must be before interactWith can do anything
+		return 0;
+	}
+	
+	
+	public double contactRadius(double t) {	// the radius at which interactWith takes effect, for predicting contacts ahead of time
+		return interactionRadius(t);
+	}
+	
+	
+	public double contactGrowth() {	// how fast contactRadius grows
+		return 0;
+	}
+	
+	
+	public boolean contactExact() {	// whether contactRadius is exact, or just an upper bound
+		return true;
+	}
+	
+	
+	public final int version() {
+		return version;
+	}
+	
+	
+	protected final void invalidate() {	// call this whenever this moves or stops existing differently than planned
+		version ++;
+		space.changed(this);
+	}
+	
+	
+	final byte[] savedIn() {	// the bodies the Battlefield last saved this with, or null if it might have changed since
+		return savedIn;
+	}
+	
+	
+	final int savedAt() {	// the index of this among them
+		return savedAt;
+	}
+	
+	
+	final void saved(byte[] batch, int index) {	// remembers where this was saved, so it doesn't have to be saved again
+		savedIn = batch;							// until it changes
+		savedAt = index;
+	}
+	
+	
+	final void touch() {	// the Battlefield calls this before anything that could change this (updates, interactions,
+		savedIn = null;		// and compaction), so that it gets saved again
+	}
+	
+	
+	protected final double nextRandom() {	// a random number in [0, 1) from this body's own stream, which is the same on every peer
+		long z = (randomState += 0x9E3779B97F4A7C15L);	// this is the SplitMix64 generator that SplittableRandom uses,
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;		// but keeping its state in a plain long lets it be saved in keyframes
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		return ((z ^ (z >>> 31)) >>> 11)*0x1.0p-53;
+	}
+	
+	
+	public void compact(double t) {	// forgets everything that happened before t, since nobody can see that far back anymore
+		pos.compact(t);
+		for (LightCurve band: lum)
+			band.evict(t);	// luminosity spikes that have faded out by then can go
+	}
+	
+	
 	public boolean existsAt(double t) {	// determines whether this sprite should be drawn
 		return age(t) >= 0;
 	}
 	
 	
-	protected final void playSound(String sfx, double t) {	// play sound at time t
-		for (int i = soundt.size()-1; i >= 0; i --) {	// find the correct index
-			if (soundt.get(i) < t) {
-				soundt.add(i+1, new Double(t));		// and insert the sound into sound and soundt
-				sound.add(i+1, sfx);
-				return;
-			}
-		}
-		soundt.add(0, new Double(t));	// insert it at slot zero if you haven't found a spot by now
-		sound.add(0, sfx);
+	public double endTime() {	// the time after which this will never exist or be worth drawing again
+		final int last = pos.size()-1;	// by default, that is when it leaves the map for good
+		return exitTime(pos.startTime(last), pos.startX(last), pos.startY(last), pos.vx(last), pos.vy(last));
+	}
+	
+	
+	static double exitTime(double t0, double x0, double y0, double vx, double vy) {	// when something that passes (x0, y0)
+		final double a = vx*vx + vy*vy;														// at t0 leaves the map
+		if (a == 0)
+			return Double.POSITIVE_INFINITY;	// things that stop moving stick around forever
+		final double b = x0*vx + y0*vy;
+		final double c = x0*x0 + y0*y0 - Battlefield.MAP_RADIUS*Battlefield.MAP_RADIUS;
+		return t0 + (-b + Math.sqrt(b*b - a*c))/a;	// solve for when it crosses the edge on the way out
+	}
+	
+	
+	protected final void playSound(byte sfx, double t) {	// play sound at time t
+		space.getSounds().schedule(t, sfx, this);
 	}
 	
 	
 	protected final void clearSoundsAfter(double t) {	// deletes all planned sounds after a certain time
-		for (int i = soundt.size()-1; i >= 0; i --) {
-			if (soundt.get(i) > t) {
-				soundt.remove(i);
-				sound.remove(i);
-			}
-			else
-				return;
-		}
+		space.getSounds().clearAfter(this, t);
 	}
 	
 	
-	public final String soundName(double t) {
-		if (!soundt.isEmpty() && soundt.get(0) <= t) {	// if there is a sound that needs to be played
-			soundt.remove(0);			// take it off the list
-			return sound.remove(0);	// and play it
-		}
-		return null;	// otherwise, stay silent
+	public final double seenBy(Body observer, double to) {	// calculates the time the observer sees this at
+		Sightline line = sightlines;
+		while (line != null && line.observer != observer)	// there are only ever a handful of observers,
+			line = line.next;								// so a short list is faster than a map
+		if (line == null)
+			line = sightlines = new Sightline(observer, sightlines);
+		
+		line.time = retardedTime(observer.xValAt(to), observer.yValAt(to), to, line);
+		return line.time;
 	}
 	
 	
-	protected double seenBy(Body observer, double to) {	// calculates the time the observer sees this at
-		if (observer.xValAt(to) == this.xValAt(to) && observer.yValAt(to) == this.yValAt(to))
+	final void forgetSightlines() {	// forgets who has looked at this (once they've all been replaced by new copies)
+		sightlines = null;
+	}
+	
+	
+	public boolean seenAlongPath() {	// whether retardedTime is just where the light-cone crosses pos, so that a
+		return true;					// LightConeIndex can answer for it
+	}
+	
+	
+	protected double retardedTime(double xo, double yo, double to, Sightline hint) {	// the time light leaving this
+		if (xo == this.xValAt(to) && yo == this.yValAt(to))	// would have to leave to get to (xo, yo) at to
 			return to;	// no calculations necessary when coordinates are equivalent
 		
-		int i;
-		for (i = pos.size()-1; i > 0; i --)	// iterate through pos to find the correct motion segment
-			if (pos.get(i)[0] <= to)	// they should be sorted chronologically
-				break;	// calculate time based on this
-		
-		final double c2 = Univ.c*Univ.c;
+		int i = hint.segment;	// start from wherever we found it last time
+		if (i < 0 || i >= pos.size() || pos.startTime(i) != hint.start)	// unless the segments have been shuffled around since
+			i = pos.segmentAt(Double.isNaN(hint.time) ? to : hint.time);
+		i = Math.max(0, i);
 		
-		double[] position;
-		double ts;
-		do {
-			position = pos.get(i);
-			final double dt = position[0] - to;
-			final double dx = position[1] - observer.xValAt(to);
-			final double dy = position[2] - observer.yValAt(to);
-			final double vx = position[3];
-			final double vy = position[4];
-			final double vs2   = vx*vx + vy*vy - c2;
-			final double b = vx*dx + vy*dy - c2*dt;
-			final double ds2   = dx*dx + dy*dy - c2*dt*dt;
-			ts = (-b + Math.sqrt(b*b - vs2*ds2))/vs2 + position[0];
+		boolean forward = true;	// walk forward as long as the answer is past the end of the segment, then back as long as
+		double ts;				// it is before the start (the light-cone crosses each path exactly once, so this finds it)
+		while (true) {
+			final double t0 = pos.startTime(i);
+			ts = lightConeRoot(t0, pos.startX(i), pos.startY(i), pos.vx(i), pos.vy(i), xo, yo, to);
 			
-			i --;								// if the calculated time does not match the motion segment,
-		} while (i >= 0 && ts < position[0]);	// we must recalculate with the previous one
+			if (ts < t0 && i > 0) {	// if the calculated time does not match the motion segment,
+				i --;				// we must recalculate with the previous one
+				forward = false;
+			}
+			else if (forward && i+1 < pos.size() && ts >= pos.startTime(i+1))
+				i ++;				// or the next one
+			else
+				break;
+		}
 		
+		if (ts < pos.keptFrom())	// (segment 0 only reaches back that far once the path has been compacted)
+			throw new IllegalStateException("light from "+this+" at "+ts+" left before the oldest part of its path we kept");
+		hint.segment = i;
+		hint.start = pos.startTime(i);
 		return ts;
 	}
 	
 	
+	static double lightConeRoot(double t0, double x0, double y0, double vx, double vy,	// the time light would have to
+			double xo, double yo, double to) {	// leave something that passes (x0, y0) at t0 to get to (xo, yo) at to
+		final double c2 = Univ.c*Univ.c;
+		final double dt = t0 - to;
+		final double dx = x0 - xo;
+		final double dy = y0 - yo;
+		final double vs2   = vx*vx + vy*vy - c2;
+		final double b = vx*dx + vy*dy - c2*dt;
+		final double ds2   = dx*dx + dy*dy - c2*dt*dt;
+		return (-b + Math.sqrt(Math.max(0, b*b - vs2*ds2)))/vs2 + t0;	// (the roots are always real, but roundoff may not know that)
+	}
+	
+	
 	public double luminosityAt(int band, double t) {	// how bright is this object in this frequency band?
-		double output = DEFAULT_LUMINOSITY;
-		for (int i = lum.get(band).size() - 1; i >= 0; i --) {
-			final double[] tld = lum.get(band).get(i);
-			if (t-tld[0] >= 0 && t-tld[0] < tld[2])
-				output += tld[1]*(1 - (t-tld[0])/tld[2]);
-		}
-		return output;
+		return DEFAULT_LUMINOSITY + lum[band].valueAt(t);
+	}
+	
+	
+	public double peakLuminosity(int band) {	// an upper bound on luminosityAt in this band at any time still on record
+		return DEFAULT_LUMINOSITY + lum[band].peak();
+	}
+	
+	
+	public double peakLuminosity(int band, double ta, double tb) {	// the same, but only between ta and tb
+		return DEFAULT_LUMINOSITY + lum[band].peak(ta, tb);
+	}
+	
+	
+	public final int illuminations() {	// how many times anything has lit this up
+		int n = 0;
+		for (LightCurve band: lum)
+			n += band.added();
+		return n;
 	}
 	
 	
 	public void illuminate(double amount, double duration, int band, double t) {
-		final double[] newLum = {t, amount, duration};	// get light shined on it in the given frequency band
-		lum.get(band).add(newLum);
+		lum[band].add(t, amount, duration);	// get light shined on it in the given frequency band
 	}
 	
 	
 	public final double xValAt(double t) {	// returns x in pixels at time t
-		for (int i = pos.size()-1; i >= 0; i --) {	// iterate through pos to find the correct motion segment
-			final double[] position = pos.get(i);
-			if (position[0] <= t) {	// they should be sorted chronologically
-				return position[1] + position[3]*(t-position[0]);	// calculate position based on this
-			}
-		}
-		return pos.get(0)[1];	// if it didn't find anything, just use the initial position
+		return pos.xValAt(t);
 	}
 	
 	
 	public final double yValAt(double t) {	// returns y in pixels at time t
-		for (int i = pos.size()-1; i >= 0; i --) {	// iterate through pos to find the correct motion segment
-			final double[] position = pos.get(i);
-			if (position[0] <= t) {	// they should be sorted chronologically
-				return position[2] + position[4]*(t-position[0]);	// calculate position based on this
-			}
-		}
-		return pos.get(0)[2];	// if it didn't find anything, just use the initial position
+		return pos.yValAt(t);
 	}
 	
 	
-	public final double vxValAt(double t) {	// returns x in pixels at time t
-		for (int i = pos.size()-1; i >= 0; i --) {	// iterate through pos to find the correct motion segment
-			final double[] position = pos.get(i);
-			if (position[0] <= t) {	// they should be sorted chronologically
-				return position[3];	// calculate position based on this
-			}
-		}
-		return 0;	// if it didn't find anything, just assume motionless
+	public final double vxValAt(double t) {	// returns x velocity at time t
+		return pos.vxValAt(t);
 	}
 	
 	
-	public final double vyValAt(double t) {	// returns y in pixels at time t
-		for (int i = pos.size()-1; i >= 0; i --) {	// iterate through pos to find the correct motion segment
-			final double[] position = pos.get(i);
-			if (position[0] <= t) {	// they should be sorted chronologically
-				return position[4];	// calculate position based on this
-			}
-		}
-		return 0;	// if it didn't find anything, just assume motionless
+	public final double vyValAt(double t) {	// returns y velocity at time t
+		return pos.vyValAt(t);
+	}
+	
+	
+	public final void stateAt(double t, double[] out) {	// puts x, y, vx, and vy at time t into out
+		pos.stateAt(t, out);
 	}
 	
 	
 	public final double age(double t) {	// returns the number of milliseconds since this has been created
-		return t-pos.get(0)[0];
+		return t-pos.birthTime();
+	}
+	
+	
+	public final double birthTime() {	// returns the time this was created
+		return pos.birthTime();
 	}
 
 }
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A task that checks which of the broad phase's candidate pairs are actually
+ * touching, splitting the work across a <code>ForkJoinPool</code>. It only
+ * looks; nothing gets changed until <code>Battlefield</code> goes back through
+ * the results in order on its own thread.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class ContactSearch extends RecursiveAction {
+
+	private static final long serialVersionUID = 1L;
+	
+	public static final int CHUNK_SIZE = 256;	// the number of pairs worth checking on a single thread
+	
+	
+	private final SpatialHash grid;		// where the pairs come from
+	private final List<Body> bodies;	// what the pair indices refer to
+	private final double t;				// the time of the check
+	private final boolean[] touching;	// where to put the results (each task only writes to its own range)
+	private final int start, end;		// the range of pairs this task checks
+	
+	
+	
+	public ContactSearch(SpatialHash grid, List<Body> bodies, double t, boolean[] touching, int start, int end) {
+		this.grid = grid;
+		this.bodies = bodies;
+		this.t = t;
+		this.touching = touching;
+		this.start = start;
+		this.end = end;
+	}
+	
+	
+	
+	@Override
+	protected void compute() {
+		if (end - start > CHUNK_SIZE) {	// split big jobs in half
+			final int mid = (start + end) >>> 1;
+			invokeAll(new ContactSearch(grid, bodies, t, touching, start, mid),
+					  new ContactSearch(grid, bodies, t, touching, mid, end));
+			return;
+		}
+		
+		for (int p = start; p < end; p ++) {	// and do small ones directly
+			final Body b1 = bodies.get(grid.firstOf(p));
+			final Body b2 = bodies.get(grid.secondOf(p));
+			touching[p] = b1.touches(b2, t) || b2.touches(b1, t);
+		}
+	}
+
+}
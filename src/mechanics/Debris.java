@@ -21,36 +21,142 @@
  */
 package mechanics;
 
+import java.io.Serializable;
+import java.util.Arrays;
+
 /**
- * A meaningless speck with random velocity that exists solely for aesthetic appeal
+ * Meaningless specks with random velocity that exist solely for aesthetic
+ * appeal. Nothing ever interacts with them, so instead of a <code>Body</code>
+ * for every speck, this just remembers each laser hit that threw some off
+ * (where, when, which way, and a random seed), and works out where any one
+ * speck went from those whenever someone wants to draw it.
  * 
  * @author	jkunimune
  * @version	1.0
  */
-public class Debris extends Body {
+public class Debris implements Serializable {
 
-	public static Debris debris(double x, double y, double th0, double t, Battlefield field) {
-		final double v0 = Univ.c/4;							// given the position, and the direction from which
-		final double vx0 = v0*Math.cos(th0);				// a ship was hit, generate some debris that could
-		final double vy0 = v0*Math.sin(th0);				// have been produced from the collision
-		final double th1 = (2*Math.PI)*Math.random();
-		final double v1 = (Univ.c/4)*Math.random();
-		final double vx1 = v1*Math.cos(th1);
-		final double vy1 = v1*Math.sin(th1);
-		return new Debris(x, y, vx0+vx1, vy0+vy1, t, field);
+	private static final long serialVersionUID = 1L;
+	
+	public static final double SPEED = Univ.c/4;	// how fast the debris carries on the way the laser was going, and the most
+													// it can go faster or slower than that in any direction
+	
+	private double[] ts;		// the time of each hit
+	private double[] xs;		// the x position of each hit
+	private double[] ys;		// the y position of each hit
+	private double[] headings;	// the direction each laser was going
+	private double[] ends;		// the time the last speck of each hit leaves the map
+	private long[] seeds;		// where each hit's stream of random numbers starts
+	private int[] counts;		// the number of specks each hit threw off
+	private int size;			// the number of hits
+	
+	
+	
+	public Debris() {
+		ts = new double[4];
+		xs = new double[4];
+		ys = new double[4];
+		headings = new double[4];
+		ends = new double[4];
+		seeds = new long[4];
+		counts = new int[4];
+		size = 0;
+	}
+	
+	
+	
+	public void add(double x, double y, double heading, double t, int count, long seed) {	// records a hit
+		if (size >= ts.length) {
+			final int newLength = 2*ts.length;
+			ts = Arrays.copyOf(ts, newLength);
+			xs = Arrays.copyOf(xs, newLength);
+			ys = Arrays.copyOf(ys, newLength);
+			headings = Arrays.copyOf(headings, newLength);
+			ends = Arrays.copyOf(ends, newLength);
+			seeds = Arrays.copyOf(seeds, newLength);
+			counts = Arrays.copyOf(counts, newLength);
+		}
+		ts[size] = t;
+		xs[size] = x;
+		ys[size] = y;
+		headings[size] = heading;
+		seeds[size] = seed;
+		counts[size] = count;
+		size ++;
+		
+		double end = t;
+		final double[] v = new double[2];
+		for (int k = 0; k < count; k ++) {	// it's done once the slowest speck is gone
+			velocity(size-1, k, v);
+			end = Math.max(end, Body.exitTime(t, x, y, v[0], v[1]));
+		}
+		ends[size-1] = end;
+	}
+	
+	
+	public int reap(double t) {	// forgets hits that nobody could possibly see anymore, and returns how many specks that was
+		int removed = 0;
+		int n = 0;
+		for (int i = 0; i < size; i ++) {
+			if (ends[i] + Battlefield.LOOKBACK < t) {	// if news of the last speck leaving could no longer reach us at all
+				removed += counts[i];
+			}
+			else {
+				ts[n] = ts[i];	// otherwise, keep it (in the same order)
+				xs[n] = xs[i];
+				ys[n] = ys[i];
+				headings[n] = headings[i];
+				ends[n] = ends[i];
+				seeds[n] = seeds[i];
+				counts[n] = counts[i];
+				n ++;
+			}
+		}
+		size = n;
+		return removed;
 	}
 	
 	
+	public int size() {	// the number of hits
+		return size;
+	}
+	
 	
-	private Debris(double x0, double y0, double vx0, double vy0, double t0, Battlefield field) {
-		super(x0, y0, vx0, vy0, t0, field);
+	public int count(int i) {	// the number of specks the ith hit threw off
+		return counts[i];
 	}
 	
 	
+	public double time(int i) {
+		return ts[i];
+	}
+	
+	
+	public double x(int i) {
+		return xs[i];
+	}
+	
+	
+	public double y(int i) {
+		return ys[i];
+	}
+	
+	
+	public void velocity(int i, int k, double[] out) {	// puts the velocity of the kth speck from the ith hit into out
+		final double vx0 = SPEED*Math.cos(headings[i]);		// given the position, and the direction from which a ship
+		final double vy0 = SPEED*Math.sin(headings[i]);		// was hit, generate some debris that could have been
+		final double th1 = (2*Math.PI)*random(seeds[i], 2*k);	// produced from the collision
+		final double v1 = SPEED*random(seeds[i], 2*k+1);
+		out[0] = vx0 + v1*Math.cos(th1);
+		out[1] = vy0 + v1*Math.sin(th1);
+	}
+	
 	
-	@Override
-	public String spriteName() {
-		return "debris";
+	private static double random(long seed, int n) {	// the nth number in [0, 1) from the SplitMix64 stream that starts at seed
+		long z = seed + (n+1)*0x9E3779B97F4A7C15L;	// (the same generator as Body.nextRandom, but it can skip straight to any n)
+		z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+		return ((z ^ (z >>> 31)) >>> 11)*0x1.0p-53;
 	}
 
 }
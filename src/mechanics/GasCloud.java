@@ -22,6 +22,7 @@
 package mechanics;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A large body that absorbs and confounds lasers.
@@ -31,23 +32,27 @@ import java.util.ArrayList;
  */
 public class GasCloud extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double SPEED = Univ.c/30;		// a speed related to the inital rate of expansion
 	public static final double LIFETIME = 30*Univ.s;	// a time related to the total lifetime of a cloud
 	
 	public static final double HALF_LIFE = 5*Univ.s;	// the half-life of energy in this cloud
 	public static final double LASER_ENERGY = 0.1*Univ.MJ;	// the energy required to form a laser
+	public static final double MAX_RADIUS = SPEED*LIFETIME/Math.E;	// the biggest a cloud ever gets
+	public static final double CONTACT_STEP = 1*Univ.ms;	// how finely to look for a laser coming inside the cloud
 	
 	
-	protected ArrayList<double[]> energy;	// an ArrayList that keeps track of the ever-changing energy value
+	protected Timeline energy;	// the internal energy
+	protected Timeline stored;	// the 'built up energy', which builds up at a rate proportional to energy and decides when to emit lasers
 	
 	
 	
 	public GasCloud(double x0, double y0, double vx0, double vy0, double time, Battlefield space) {
 		super(x0, y0, vx0, vy0, time, space);
 		
-		energy = new ArrayList<double[]>(1);
-		final double[] init = {time, 0, 0};	// zeroth value is time, first value is internal energy, and second
-		energy.add(init);				// value is 'built up energy', a quantity which decides when to emit lasers
+		energy = new Timeline(time, 0, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+		stored = new Timeline(time, 0, 0, 0, Double.POSITIVE_INFINITY);
 	}
 	
 	
@@ -58,29 +63,116 @@ public class GasCloud extends Body {
 	}
 	
 	
+	@Override
+	public double endTime() {
+		return Math.min(birthTime() + LIFETIME, super.endTime());
+	}
+	
+	
 	@Override
 	public void update(double t) {	// a GasCloud with energy will gradually release lasers
-		while (EsValAt(t) >= LASER_ENERGY) {
-			double tht = 2*Math.PI*Math.random();	// pick a random direction
-			double r = this.rValAt(t) + Laser.rValFor(LASER_ENERGY);	// pick a safe distance
-			space.spawn(new Laser(xValAt(t) + r*Math.cos(tht),		// fire it
-								  yValAt(t) + r*Math.sin(tht),
-								  tht, t, space, LASER_ENERGY));
+		double S = EsValAt(t);
+		if (S < LASER_ENERGY)
+			return;
+		double E = EValAt(t);
+		
+		double te = stored.lastStart();	// the built up energy is linear since the last change, so work out when it got there
+		if (E > 0)
+			te = Math.max(te, t - (S - LASER_ENERGY)/(E/HALF_LIFE));
+		S = EsValAt(te);
+		
+		final List<Laser> batch = new ArrayList<Laser>();
+		while (te <= t) {
+			final double tht = 2*Math.PI*nextRandom();	// pick a random direction
+			final double r = this.rValAt(te) + Laser.rValFor(LASER_ENERGY);	// pick a safe distance
+			batch.add(new Laser(xValAt(te) + r*Math.cos(tht),	// fire it
+								yValAt(te) + r*Math.sin(tht),
+								tht, te, space, LASER_ENERGY));
 			
-			final double[] newE = {t, EValAt(t)-LASER_ENERGY, EsValAt(t)-LASER_ENERGY};
-			energy.add(newE);	// WARNING: 
+			S -= LASER_ENERGY;
+			E -= LASER_ENERGY;
+			stored.set(te, S, E/HALF_LIFE);
+			energy.set(te, E, 0);
+			if (S < LASER_ENERGY) {	// then skip ahead to when the next one is ready
+				if (E <= 0)	break;
+				te += (LASER_ENERGY - S)/(E/HALF_LIFE);
+				S = LASER_ENERGY;
+			}
 		}
+		space.spawn(batch);
 	}
 	
 	
 	@Override
 	public void interactWith(Body that, double t) {	// GasClouds interact with lasers by absorbing them
-		if (that instanceof Laser && !(that instanceof UVLaser) && space.dist(this, that, t) < rValAt(t)) {
-			((Laser) that).collide(t);	// absorb the laser
-
-			final double[] newE = {t, this.EValAt(t)+((Laser) that).EVal(), this.EsValAt(t)};
-			energy.add(newE);	// and increase your energy
+		if (that instanceof Laser && !(that instanceof UVLaser))	// (as long as nothing else got them first)
+			((Laser) that).contact(this, entryTime((Laser) that, t));
+	}
+	
+	
+	void absorb(Laser laser, double t) {	// takes in the energy of a laser that ran into this at time t
+		final double newE = this.EValAt(t)+laser.EVal();
+		stored.set(t, this.EsValAt(t), newE/HALF_LIFE);
+		energy.set(t, newE, 0);
+	}
+	
+	
+	@Override
+	public boolean touches(Body that, double t) {
+		return that instanceof Laser && !(that instanceof UVLaser) && !Double.isNaN(entryTime((Laser) that, t));
+	}
+	
+	
+	private double entryTime(Laser laser, double t) {	// the first time since the laser's last update that it came inside
+		final double ta = laser.sweptSince(t);			// this, or NaN (the radius isn't linear, so this sweeps against
+		final double tBiggest = birthTime() + LIFETIME/Math.E;	// the biggest it got and then walks forward from there)
+		double tc = laser.sweep(this, rValAt(Math.max(ta, Math.min(t, tBiggest))), t);
+		if (Double.isNaN(tc))
+			return Double.NaN;
+		
+		double tOut = tc;
+		while (space.dist(this, laser, tc) >= rValAt(tc)) {
+			if (tc >= t)
+				return Double.NaN;	// it came close, but never actually got in
+			tOut = tc;
+			tc = Math.min(t, tc + CONTACT_STEP);
+		}
+		while (tc - tOut > 1e-3*CONTACT_STEP) {	// then narrow it down
+			final double tm = (tOut + tc)/2;
+			if (space.dist(this, laser, tm) < rValAt(tm))	tc = tm;
+			else											tOut = tm;
 		}
+		return tc;
+	}
+	
+	
+	@Override
+	public int kind() {
+		return GAS_CLOUD;
+	}
+	
+	
+	@Override
+	public int interactsWith() {
+		return 1 << LASER;
+	}
+	
+	
+	@Override
+	public double interactionRadius(double t) {
+		return rValAt(t);
+	}
+	
+	
+	@Override
+	public double contactRadius(double t) {	// the radius isn't linear, so just bound it
+		return MAX_RADIUS;
+	}
+	
+	
+	@Override
+	public boolean contactExact() {
+		return false;
 	}
 	
 	
@@ -104,22 +196,21 @@ public class GasCloud extends Body {
 	}											// particles that do not interact with each other
 	
 	
+	@Override
+	public void compact(double t) {
+		super.compact(t);
+		energy.compact(t);
+		stored.compact(t);
+	}
+	
+	
 	public double EValAt(double t) {	// the energy stored in the gas cloud
-		for (int i = energy.size()-1; i >= 0; i --) {
-			if (energy.get(i)[0] <= t)
-				return energy.get(i)[1];
-		}
-		return 0;
+		return energy.valueAt(t);
 	}
 	
 	
 	public double EsValAt(double t) {	// the integral of the energy stored in the gas coud
-		for (int i = energy.size()-1; i >= 0; i --) {
-			final double[] state = energy.get(i);
-			if (state[0] <= t)
-				return Math.max(0, state[2] + state[1]*(t-state[0])/HALF_LIFE);
-		}
-		return 0;
+		return stored.valueAt(t);
 	}
 
 }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An append-only record of a match, for replays and debugging. It logs the
+ * time of every update and every message the <code>Battlefield</code> handles,
+ * which is enough to re-simulate the game exactly since all of its randomness
+ * comes from the seed. Every so often it also saves the whole state as a
+ * keyframe, so that a <code>Replay</code> can jump into the middle without
+ * starting from the beginning. When it is closed, it writes an index of the
+ * keyframes at the end of the file.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Journal {
+
+	public static final int MAGIC = 0x53424A31;	// the first four bytes of every journal ("SBJ1")
+	public static final byte TICK = 0;			// record types: an update, which is followed by the messages it handled,
+	public static final byte MESSAGE = 1;		// a message,
+	public static final byte KEYFRAME = 2;		// a snapshot of the whole Battlefield after an update,
+	public static final byte INDEX = 3;			// and the table of keyframes, which is always last
+	public static final int HEADER_SIZE = 12;	// the magic number and the seed
+	
+	public static final double KEYFRAME_INTERVAL = 10*Univ.s;	// how much game time to leave between keyframes
+	
+	
+	private DataOutputStream out;	// the file
+	private long length;			// the number of bytes written so far
+	private double lastTime;		// the time of the last update
+	private double[] keyTimes;		// the time of each keyframe
+	private long[] keyOffsets;		// where in the file each keyframe starts
+	private int numKeys;
+	
+	
+	
+	public Journal(File file, long seed) throws IOException {
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeLong(seed);
+		length = HEADER_SIZE;
+		lastTime = Double.NEGATIVE_INFINITY;
+		keyTimes = new double[16];
+		keyOffsets = new long[16];
+		numKeys = 0;
+	}
+	
+	
+	
+	public void tick(double t) {	// records that the Battlefield updated to time t
+		if (out == null)	return;
+		try {
+			out.writeByte(TICK);
+			out.writeDouble(t);
+			length += 9;
+			lastTime = t;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	
+	public void message(String data, boolean transmit) {	// records a message that was handled during the last update
+		if (out == null)	return;
+		try {
+			final byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+			out.writeByte(MESSAGE);
+			out.writeBoolean(transmit);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+			length += 6 + bytes.length;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	
+	public boolean keyframeDue(double t) {	// whether it has been long enough since the last keyframe
+		return out != null && (numKeys == 0 || t - keyTimes[numKeys-1] >= KEYFRAME_INTERVAL);
+	}
+	
+	
+	public void keyframe(double t, Battlefield field) {	// records the entire state of the game
+		if (out == null)	return;
+		try {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final ObjectOutputStream oos = new ObjectOutputStream(bytes);
+			oos.writeObject(field);
+			oos.close();
+			
+			if (numKeys == keyTimes.length) {
+				keyTimes = Arrays.copyOf(keyTimes, 2*numKeys);
+				keyOffsets = Arrays.copyOf(keyOffsets, 2*numKeys);
+			}
+			keyTimes[numKeys] = t;
+			keyOffsets[numKeys] = length;
+			numKeys ++;
+			
+			out.writeByte(KEYFRAME);
+			out.writeDouble(t);
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+			length += 13 + bytes.size();
+			out.flush();	// if the game crashes, everything up to here can still be replayed
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+	
+	
+	public void close() {	// writes the index and closes the file
+		if (out == null)	return;
+		try {
+			final long indexOffset = length;
+			out.writeByte(INDEX);
+			out.writeDouble(lastTime);
+			out.writeInt(numKeys);
+			for (int k = 0; k < numKeys; k ++) {
+				out.writeDouble(keyTimes[k]);
+				out.writeLong(keyOffsets[k]);
+			}
+			out.writeLong(indexOffset);	// the last eight bytes say where to find the index
+			out.close();
+		} catch (IOException e) {
+			System.err.println("Could not finish the journal: "+e);
+		}
+		out = null;
+	}
+	
+	
+	private void fail(IOException e) {	// gives up on recording, rather than taking the game down with it
+		System.err.println("Could not write to the journal: "+e);
+		try {
+			out.close();
+		} catch (IOException e1) {}
+		out = null;
+	}
+
+}
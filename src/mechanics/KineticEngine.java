@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An event-driven alternative to stepping <code>Battlefield</code> frame by
+ * frame. Since everything moves in straight lines and every front grows at a
+ * constant rate, the next time any pair of bodies touches can be solved for
+ * exactly, so this keeps those predictions in a queue and jumps straight from
+ * one to the next. A prediction only gets redone when one of its bodies
+ * changes course or stops existing.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class KineticEngine implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	public static final double DELAY = 0.01*Univ.ms;	// how long after first contact to carry out an interaction (so it definitely registers)
+	public static final double RECHECK = 20*Univ.ms;	// how often to check pairs whose contact radius is only a bound
+	
+	
+	private Battlefield space;			// the Battlefield this runs
+	private List<Body> bodies;			// the bodies being simulated (shared with the Battlefield)
+	private PriorityQueue<Event> events;	// the predicted contacts, soonest first
+	private double now;					// the time up to which everything has been simulated
+	
+	
+	
+	public KineticEngine(Battlefield field, List<Body> bodyList, double t) {
+		space = field;
+		bodies = bodyList;
+		events = new PriorityQueue<Event>();
+		now = t;
+		for (int i = 1; i < bodies.size(); i ++)	// predict every pair there is to start with
+			for (int j = 0; j < i; j ++)
+				predict(bodies.get(i), bodies.get(j), now, true);
+		for (Body b: bodies)	// (including with the planets, which aren't in bodies)
+			for (Planet p: space.getPlanets())
+				predict(b, p, now, true);
+	}
+	
+	
+	
+	public void add(Body b) {	// starts keeping track of a newly spawned body
+		for (int j = 0; j < bodies.size(); j ++)
+			if (bodies.get(j) != b)
+				predict(b, bodies.get(j), now, true);
+		for (Planet p: space.getPlanets())
+			predict(b, p, now, true);
+	}
+	
+	
+	public void advanceTo(double t) {	// carries out every interaction up to time t, then updates everything
+		while (!events.isEmpty() && events.peek().time <= t) {
+			final Event e = events.poll();
+			if (e.a.version() != e.aVersion || e.b.version() != e.bVersion)
+				continue;	// skip predictions that have since been redone
+			
+			now = Math.max(now, e.time);
+			if (e.a.existsAt(now) && e.b.existsAt(now)) {
+				e.a.touch();
+				e.b.touch();
+				e.a.interactWith(e.b, now);
+				e.b.interactWith(e.a, now);
+				e.a.resolve(now);	// (events come in order, so whatever this one found really is the first)
+				e.b.resolve(now);
+				space.commit();	// let anything spawned just now start interacting right away
+			}
+			
+			final boolean aChanged = e.a.version() != e.aVersion;
+			final boolean bChanged = e.b.version() != e.bVersion;
+			if (aChanged)	repredict(e.a);	// if anything changed course, everything about it has to be redone
+			if (bChanged)	repredict(e.b);
+			if (!aChanged && !bChanged)
+				predict(e.a, e.b, now, false);	// otherwise, just figure out when this pair next touches
+		}
+		
+		now = Math.max(now, t);
+		for (int i = bodies.size()-1; i >= 0; i --)
+			space.updateBody(bodies.get(i), now);
+		space.commit();
+	}
+	
+	
+	public double getTime() {
+		return now;
+	}
+	
+	
+	private void repredict(Body b) {	// redoes every prediction involving b
+		for (int j = 0; j < bodies.size(); j ++)
+			if (bodies.get(j) != b)
+				predict(b, bodies.get(j), now, false);
+		for (Planet p: space.getPlanets())
+			predict(b, p, now, false);
+	}
+	
+	
+	private void predict(Body a, Body b, double t, boolean fresh) {	// queues up the next time a and b will touch
+		final boolean aActs = (a.interactsWith() & (1 << b.kind())) != 0;
+		final boolean bActs = (b.interactsWith() & (1 << a.kind())) != 0;
+		if (!aActs && !bActs)
+			return;		// some pairs never do anything
+		
+		final double start = Math.max(t, Math.max(a.birthTime(), b.birthTime()));
+		if (a.endTime() < start || b.endTime() < start)
+			return;		// and some pairs are already over
+		
+		final Body hub;		// the one whose radius matters
+		if (aActs && (!bActs || a.contactRadius(start) >= b.contactRadius(start)))
+			hub = a;
+		else
+			hub = b;
+		final Body other = (hub == a) ? b : a;
+		final double r = hub.contactRadius(start);
+		
+		double te;
+		if (!hub.contactExact() && hub.pos.distanceTo(other.pos, start, start) < r)
+			te = start + RECHECK;	// if the radius is only a bound and we're within it, we'll just have to keep looking
+		else
+			te = hub.pos.entryTime(other.pos, r, hub.contactGrowth(), start, Double.POSITIVE_INFINITY, fresh);
+		
+		if (!Double.isNaN(te))
+			events.add(new Event(te + DELAY, a, b));
+	}
+	
+	
+	
+	private static class Event implements Comparable<Event>, Serializable {	// a predicted contact between two bodies
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final double time;
+		private final Body a, b;
+		private final int aVersion, bVersion;	// the versions of the bodies this prediction was based on
+		
+		
+		private Event(double t, Body a, Body b) {
+			this.time = t;
+			this.a = a;
+			this.b = b;
+			this.aVersion = a.version();
+			this.bVersion = b.version();
+		}
+		
+		
+		@Override
+		public int compareTo(Event that) {
+			return Double.compare(this.time, that.time);
+		}
+	}
+
+}
@@ -30,6 +30,8 @@ package mechanics;
  */
 public class Laser extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double ENERGY_DENS = Math.pow(10,-13)*Univ.MJ/Univ.km3;	// a pretty absurd value, but eh
 	public static final double HALF_LIFE = 10*Univ.s;	// not really a half-life
 	
@@ -38,6 +40,9 @@ public class Laser extends Body {
 	protected double r;		// the radius of effect
 	
 	private double collidedTime;
+	private double lastUpdateTime;	// the time it was last checked for collisions
+	private transient Body target;	// the first thing it ran into since then, if anything (until resolve carries it out)
+	private transient double targetTime;	// and when
 	
 	
 	
@@ -47,6 +52,7 @@ public class Laser extends Body {
 		E = 1*Univ.MJ;
 		r = rValFor(E);	// approximate laser as a sphere
 		collidedTime = Double.MAX_VALUE;
+		lastUpdateTime = time;
 	}
 	
 	
@@ -56,21 +62,92 @@ public class Laser extends Body {
 		E = energy;
 		r = rValFor(E);
 		collidedTime = Double.MAX_VALUE;
+		lastUpdateTime = time;
 	}
 	
 	
 	
+	@Override
+	public void update(double t) {	// remember how far along we have checked
+		lastUpdateTime = t;
+	}
+	
+	
 	@Override
 	public void interactWith(Body that, double t) {	// lasers interact with ships by killing them
-		if (t < collidedTime && that instanceof Ship && space.dist(this,that,t) < r) {
-			((Ship) that).damaged(E, t);
-			for (int i = 0; i < E/(100*Univ.kJ); i ++)
-				space.spawn(Debris.debris(xValAt(t), yValAt(t), heading, t, space));
-			this.collide(t);
+		if (that instanceof Ship)
+			contact(that, sweep(that, r, t));
+	}
+	
+	
+	@Override
+	public void resolve(double t) {	// only the first thing it ran into gets hit, no matter what order they were checked in
+		if (target == null)
+			return;
+		final Body that = target;
+		final double tc = targetTime;
+		target = null;
+		
+		if (that instanceof Ship) {
+			((Ship) that).damaged(E, tc);
+			space.getDebris().add(xValAt(tc), yValAt(tc), heading, tc,
+					(int)Math.ceil(E/(100*Univ.kJ)), (long)(nextRandom()*(1L << 53)));	// throw off one speck per 100 kJ
+		}
+		else if (that instanceof GasCloud) {
+			((GasCloud) that).absorb(this, tc);
+		}
+		this.collide(tc);
+	}
+	
+	
+	double sweep(Body that, double radius, double t) {	// the first time since the last update that this came within
+		return pos.contactTime(that.pos, radius, sweptSince(t), t);	// radius of that, or NaN
+	}
+	
+	
+	double sweptSince(double t) {	// the start of the stretch an update at t has to check
+		return Math.min(lastUpdateTime, t);
+	}
+	
+	
+	void contact(Body that, double tc) {	// notes that this ran into that at tc, if nothing else got in the way first
+		if (!Double.isNaN(tc) && tc < collidedTime && (target == null || tc < targetTime)) {
+			target = that;
+			targetTime = tc;
 		}
 	}
 	
 	
+	@Override
+	public boolean touches(Body that, double t) {
+		return that instanceof Ship && !Double.isNaN(sweep(that, r, t));
+	}
+	
+	
+	@Override
+	public int kind() {
+		return LASER;
+	}
+	
+	
+	@Override
+	public int interactsWith() {
+		return 1 << SHIP;
+	}
+	
+	
+	@Override
+	public double interactionRadius(double t) {	// it could have hit anything it passed since the last update
+		return r + 2*Univ.c*Math.max(0, t - lastUpdateTime);	// (nothing can close faster than 2c)
+	}
+	
+	
+	@Override
+	public double contactRadius(double t) {	// the actual radius, without the sweep
+		return r;
+	}
+	
+	
 	@Override
 	public String spriteName() {
 		return "laser";
@@ -92,15 +169,27 @@ public class Laser extends Body {
 	
 	
 	@Override
-	public double seenBy(Body observer, double to) {	// lasers need a different algorithm for this,
-		final double c2 = Univ.c*Univ.c;				// because they travel at the speed of light
-		final double[] position = pos.get(0);
-		final double dt = position[0] - to;
-		final double dx = position[1] - observer.xValAt(to);
-		final double dy = position[2] - observer.yValAt(to);
-		final double vx = position[3];
-		final double vy = position[4];
-		final double ts = -(dx*dx + dy*dy - c2*dt*dt) / (2*vx*dx + 2*vy*dy - 2*c2*dt) + position[0];
+	public double endTime() {
+		return Math.min(collidedTime, super.endTime());
+	}
+	
+	
+	@Override
+	public boolean seenAlongPath() {
+		return false;
+	}
+	
+	
+	@Override
+	protected double retardedTime(double xo, double yo, double to, Sightline hint) {	// lasers need a different algorithm
+		final double c2 = Univ.c*Univ.c;	// for this, because they travel at the speed of light (and never turn)
+		final double t0 = pos.startTime(0);
+		final double dt = t0 - to;
+		final double dx = pos.startX(0) - xo;
+		final double dy = pos.startY(0) - yo;
+		final double vx = pos.vx(0);
+		final double vy = pos.vy(0);
+		final double ts = -(dx*dx + dy*dy - c2*dt*dt) / (2*vx*dx + 2*vy*dy - 2*c2*dt) + t0;
 		if (ts < to)	return ts;
 		else			return Double.NEGATIVE_INFINITY;	// if you're seeing it in the future, something's wrong
 	}
@@ -112,6 +201,18 @@ public class Laser extends Body {
 	}
 	
 	
+	@Override
+	public double peakLuminosity(int band) {
+		return E/HALF_LIFE;
+	}
+	
+	
+	@Override
+	public double peakLuminosity(int band, double ta, double tb) {
+		return E/HALF_LIFE;
+	}
+	
+	
 	public double EVal() {	// the energy value
 		return E;
 	}
@@ -119,6 +220,7 @@ public class Laser extends Body {
 	
 	public void collide(double t) {	// tells the game that this laser no longer exists
 		collidedTime = t;
+		invalidate();
 	}
 	
 	
@@ -0,0 +1,444 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * A bounding-volume hierarchy over every recent motion segment of every body,
+ * in (x, y, t). A whole observer can then ask where its past light-cone
+ * crosses everything it could possibly see in one walk down the tree, instead
+ * of solving the light-cone for each body in turn. It is built from a snapshot
+ * and is good for a little while after; bodies that have turned or brightened
+ * since then are no longer covered, and have to be asked about the slow way.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class LightConeIndex {
+	
+	public static final double LOOKAHEAD = 1*Univ.s;	// how long an index stays usable after it is built
+	public static final int MIN_BODIES = 1024;		// below this many bodies, solving each light-cone on its own is cheaper
+	
+	private static final int LEAF_SIZE = 8;	// the most segments a leaf can hold
+	private static final double PIECE_LENGTH = 128;	// the longest distance one box should cover
+	private static final int MAX_PIECES = 64;		// the most boxes one segment should take
+	private static final int CODE_BITS = 14;		// bits of each coordinate on the Z-order curve (fewer, if the segment
+													// indices packed in with it need more than the 21 left over)
+	private static final double SLOP = 1e-6;	// how much rounding error to forgive at box and segment edges
+	
+	
+	private final double built;		// the time this was built at
+	private final double until;		// the last time it can answer for
+	private final int scanned;		// how many bodies there were to look at
+	private int misses;				// how many times anyone has asked about a body that has changed since
+	
+	private final Body[] bodies;		// every body that is covered, by slot
+	private final int[] versions;		// the version of each one when it was indexed
+	private final int[] illuminations;	// and how many times it had been lit up
+	private final IdentityHashMap<Body, Integer> slots;	// where each body is in those arrays
+	
+	private int numSegments;
+	private int[] owners;				// the body each segment belongs to
+	private boolean[] firsts;			// whether each segment is the first one on record, and so goes back forever
+	private double[] t0s, x0s, y0s, vxs, vys;	// the motion of each segment
+	private double[] tMins, tMaxs, xMins, xMaxs, yMins, yMaxs;	// the bounding box of each segment
+	private double[][] reaches;		// the square of the farthest each segment can be seen from in each band
+	
+	private int numNodes;
+	private final int[] lefts, rights;	// the children of each node, or -1-start and end of its segments if it's a leaf
+	private final double[] nTMins, nTMaxs, nXMins, nXMaxs, nYMins, nYMaxs;	// the bounding box of each node
+	private final double[][] nReaches;	// the square of the farthest anything under each node can be seen from, in each band
+	
+	private int[] stack;				// the nodes still to visit in the current query
+	private final int[] stamps;		// the last query that found each body, so none gets found twice
+	private int stamp;
+	private int[] hits;				// the bodies found by the last query
+	private double[] times;			// and when the light each one saw left them
+	private int numHits;
+	
+	
+	
+	public LightConeIndex(List<? extends Body> everything, double t) {
+		built = t;
+		until = t + LOOKAHEAD;
+		scanned = everything.size();
+		
+		final int bands = Body.NUM_BANDS;
+		bodies = new Body[scanned];
+		versions = new int[scanned];
+		illuminations = new int[scanned];
+		reaches = new double[bands][];
+		slots = new IdentityHashMap<Body, Integer>();
+		allocateSegments(2*scanned + 1);
+		
+		int m = 0;
+		for (int j = 0; j < everything.size() && m < scanned; j ++) {	// (this gets built from the drawing thread, so
+			final Body b = everything.get(j);						// it goes by index like GameScreen does)
+			if (!b.seenAlongPath())
+				continue;	// some things have their own ideas about where they appear
+			bodies[m] = b;
+			versions[m] = b.version();
+			illuminations[m] = b.illuminations();
+			slots.put(b, m);
+			
+			final double from = t - Math.min(Battlefield.LOOKBACK, Battlefield.HORIZON + reachOf(b)/Univ.c);	// we hear from our
+			final Trajectory p = b.pos;	// ships within a horizon, and they can't see anything from farther than it shines
+			for (int i = Math.max(0, p.segmentAt(from)); i < p.size() && p.startTime(i) <= until; i ++) {
+				final double start = (i == 0) ? Math.min(p.startTime(i), from) : p.startTime(i);	// the first segment extends
+				final double end = (i+1 < p.size()) ? Math.min(p.startTime(i+1), until) : until;	// back as far as anyone could look
+				final double length = Math.hypot(p.vx(i), p.vy(i))*(end - start);
+				final int pieces = (int) Math.min(MAX_PIECES, Math.max(1, Math.ceil(length/PIECE_LENGTH)));
+				for (int k = 0; k < pieces; k ++)	// long trips get cut up so that their boxes don't cover half the map
+					addSegment(b, m, i == 0 && k == 0, p.startTime(i), p.startX(i), p.startY(i), p.vx(i), p.vy(i),
+							start + (end-start)*k/pieces, (k+1 < pieces) ? start + (end-start)*(k+1)/pieces : end);
+			}
+			m ++;
+		}
+		
+		sort();
+		final int maxNodes = Math.max(1, 2*numSegments);
+		lefts = new int[maxNodes];
+		rights = new int[maxNodes];
+		nTMins = new double[maxNodes];
+		nTMaxs = new double[maxNodes];
+		nXMins = new double[maxNodes];
+		nXMaxs = new double[maxNodes];
+		nYMins = new double[maxNodes];
+		nYMaxs = new double[maxNodes];
+		nReaches = new double[bands][maxNodes];
+		numNodes = 0;
+		if (numSegments > 0)
+			build(0, numSegments);
+		
+		stack = new int[64];
+		stamps = new int[m];
+		stamp = 0;
+		hits = new int[16];
+		times = new double[16];
+		numHits = 0;
+	}
+	
+	
+	
+	public boolean fresh(double t, int numBodies) {	// whether this can still answer for time t, and hasn't fallen so
+		return t >= built && t <= until && numBodies <= scanned + Math.max(16, scanned/4)	// far behind that
+				&& misses <= 2*scanned;														// rebuilding would be cheaper
+	}
+	
+	
+	public int size() {	// the number of slots there are for bodies
+		return bodies.length;
+	}
+	
+	
+	public boolean covers(Body b) {	// whether queries still give the right answer for this body
+		return slotOf(b) >= 0;
+	}
+	
+	
+	public int slotOf(Body b) {	// where this body is in the index, or -1 if queries can't be trusted about it
+		final Integer m = slots.get(b);
+		if (m == null)
+			return -1;	// it was never here
+		if (b.version() != versions[m] || b.illuminations() != illuminations[m]) {
+			misses ++;
+			return -1;	// or it has turned or been lit up since
+		}
+		return m;
+	}
+	
+	
+	public int query(double xo, double yo, double to, int band) {	// finds everything bright enough in this band to be
+		numHits = 0;						// seen from (xo, yo) at to, and when its light left it; returns how many
+		if (numNodes == 0 || Double.isNaN(xo) || Double.isNaN(yo) || !(to <= until))
+			return 0;
+		stamp ++;
+		
+		int depth = 0;
+		stack[depth++] = 0;
+		while (depth > 0) {
+			final int node = stack[--depth];
+			final double nearX = Math.max(0, Math.max(nXMins[node]-xo, xo-nXMaxs[node]));	// (everything is squared
+			final double nearY = Math.max(0, Math.max(nYMins[node]-yo, yo-nYMaxs[node]));	// to save on square roots)
+			final double near2 = nearX*nearX + nearY*nearY;
+			if (near2 > nReaches[band][node])
+				continue;	// nothing in here is bright enough to see from this far
+			final double early = Univ.c*(to - nTMins[node]) + SLOP;
+			if (early < 0 || near2 > early*early)
+				continue;	// light from even the earliest, closest corner hasn't gotten here yet
+			final double farX = Math.max(Math.abs(nXMins[node]-xo), Math.abs(nXMaxs[node]-xo));
+			final double farY = Math.max(Math.abs(nYMins[node]-yo), Math.abs(nYMaxs[node]-yo));
+			final double late = Univ.c*(to - nTMaxs[node]) - SLOP;
+			if (late > 0 && late*late > farX*farX + farY*farY)
+				continue;	// light from even the latest, farthest corner has already gone past
+			
+			if (lefts[node] < 0) {
+				for (int k = -1-lefts[node]; k < rights[node]; k ++)
+					check(k, xo, yo, to, band);
+			}
+			else {
+				if (depth + 2 > stack.length)
+					stack = Arrays.copyOf(stack, 2*stack.length);
+				stack[depth++] = lefts[node];
+				stack[depth++] = rights[node];
+			}
+		}
+		return numHits;
+	}
+	
+	
+	public Body bodyOf(int k) {	// the kth body the last query found
+		return bodies[hits[k]];
+	}
+	
+	
+	public double timeOf(int k) {	// the time the light the last query saw left the kth body
+		return times[k];
+	}
+	
+	
+	int slotAt(int k) {	// the slot of the kth body the last query found
+		return hits[k];
+	}
+	
+	
+	private void check(int s, double xo, double yo, double to, int band) {	// records where the light-cone crosses a
+		final int m = owners[s];													// segment, if it does
+		if (stamps[m] == stamp)
+			return;
+		final double nearX = Math.max(0, Math.max(xMins[s]-xo, xo-xMaxs[s]));
+		final double nearY = Math.max(0, Math.max(yMins[s]-yo, yo-yMaxs[s]));
+		if (nearX*nearX + nearY*nearY > reaches[band][s])
+			return;	// its neighbors in the leaf might be close enough, but it isn't
+		final double ts = Body.lightConeRoot(t0s[s], x0s[s], y0s[s], vxs[s], vys[s], xo, yo, to);
+		if (!(ts < tMaxs[s] + SLOP) || (!firsts[s] && !(ts >= tMins[s] - SLOP)))
+			return;	// the crossing is on some other piece
+		stamps[m] = stamp;
+		if (numHits >= hits.length) {
+			hits = Arrays.copyOf(hits, 2*hits.length);
+			times = Arrays.copyOf(times, 2*times.length);
+		}
+		hits[numHits] = m;
+		times[numHits] = ts;
+		numHits ++;
+	}
+	
+	
+	private int build(int lo, int hi) {	// makes a node for segments lo through hi-1, and returns its index
+		final int node = numNodes ++;
+		if (hi - lo <= LEAF_SIZE) {
+			lefts[node] = -1-lo;
+			rights[node] = hi;
+			nTMins[node] = nXMins[node] = nYMins[node] = Double.POSITIVE_INFINITY;
+			nTMaxs[node] = nXMaxs[node] = nYMaxs[node] = Double.NEGATIVE_INFINITY;
+			for (int s = lo; s < hi; s ++)
+				stretch(node, s);
+			return node;
+		}
+		
+		final int mid = (lo + hi) >>> 1;	// the segments are already in Z-order, so halving the list halves the space
+		final int left = build(lo, mid);
+		final int right = build(mid, hi);
+		lefts[node] = left;
+		rights[node] = right;
+		nTMins[node] = Math.min(nTMins[left], nTMins[right]);
+		nTMaxs[node] = Math.max(nTMaxs[left], nTMaxs[right]);
+		nXMins[node] = Math.min(nXMins[left], nXMins[right]);
+		nXMaxs[node] = Math.max(nXMaxs[left], nXMaxs[right]);
+		nYMins[node] = Math.min(nYMins[left], nYMins[right]);
+		nYMaxs[node] = Math.max(nYMaxs[left], nYMaxs[right]);
+		for (int band = 0; band < nReaches.length; band ++)
+			nReaches[band][node] = Math.max(nReaches[band][left], nReaches[band][right]);
+		return node;
+	}
+	
+	
+	private void stretch(int node, int s) {	// grows a leaf's box to fit one of its segments
+		nTMins[node] = Math.min(nTMins[node], tMins[s]);
+		nTMaxs[node] = Math.max(nTMaxs[node], tMaxs[s]);
+		nXMins[node] = Math.min(nXMins[node], xMins[s]);
+		nXMaxs[node] = Math.max(nXMaxs[node], xMaxs[s]);
+		nYMins[node] = Math.min(nYMins[node], yMins[s]);
+		nYMaxs[node] = Math.max(nYMaxs[node], yMaxs[s]);
+		for (int band = 0; band < reaches.length; band ++)
+			nReaches[band][node] = Math.max(nReaches[band][node], reaches[band][s]);
+	}
+	
+	
+	private void sort() {	// puts the segments in order along a Z-order curve through (x, y, ct), so that ones that are
+		double t0 = Double.POSITIVE_INFINITY, x0 = Double.POSITIVE_INFINITY, y0 = Double.POSITIVE_INFINITY;	// close
+		double t1 = Double.NEGATIVE_INFINITY, x1 = Double.NEGATIVE_INFINITY, y1 = Double.NEGATIVE_INFINITY;	// in the
+		for (int s = 0; s < numSegments; s ++) {											// list are close in spacetime
+			t0 = Math.min(t0, tMins[s] + tMaxs[s]);
+			t1 = Math.max(t1, tMins[s] + tMaxs[s]);
+			x0 = Math.min(x0, xMins[s] + xMaxs[s]);
+			x1 = Math.max(x1, xMins[s] + xMaxs[s]);
+			y0 = Math.min(y0, yMins[s] + yMaxs[s]);
+			y1 = Math.max(y1, yMins[s] + yMaxs[s]);
+		}
+		final int indexBits = 32 - Integer.numberOfLeadingZeros(numSegments);	// the index has to fit, so the curve gets
+		final int codeBits = Math.min(CODE_BITS, (63 - indexBits)/3);		// coarser when there are a lot of segments
+		final double scale = ((1 << codeBits) - 1)/Math.max(1, Math.max(Univ.c*(t1 - t0), Math.max(x1 - x0, y1 - y0)));
+		
+		final long[] keys = new long[numSegments];
+		for (int s = 0; s < numSegments; s ++) {
+			final long code = spread((long) (Univ.c*(tMins[s] + tMaxs[s] - t0)*scale)) << 2
+					| spread((long) ((xMins[s] + xMaxs[s] - x0)*scale)) << 1
+					| spread((long) ((yMins[s] + yMaxs[s] - y0)*scale));
+			keys[s] = code << indexBits | s;
+		}
+		Arrays.sort(keys);
+		
+		final int[] order = new int[numSegments];
+		for (int k = 0; k < numSegments; k ++)
+			order[k] = (int) (keys[k] & ((1L << indexBits) - 1));
+		owners = permute(owners, order);
+		firsts = permute(firsts, order);
+		t0s = permute(t0s, order);
+		x0s = permute(x0s, order);
+		y0s = permute(y0s, order);
+		vxs = permute(vxs, order);
+		vys = permute(vys, order);
+		tMins = permute(tMins, order);
+		tMaxs = permute(tMaxs, order);
+		xMins = permute(xMins, order);
+		xMaxs = permute(xMaxs, order);
+		yMins = permute(yMins, order);
+		yMaxs = permute(yMaxs, order);
+		for (int band = 0; band < reaches.length; band ++)
+			reaches[band] = permute(reaches[band], order);
+	}
+	
+	
+	private static long spread(long v) {	// spaces out the bits of a coordinate so that two others can go between them
+		v &= (1L << CODE_BITS) - 1;
+		v = (v | v << 32) & 0x001F00000000FFFFL;
+		v = (v | v << 16) & 0x001F0000FF0000FFL;
+		v = (v | v << 8) & 0x100F00F00F00F00FL;
+		v = (v | v << 4) & 0x10C30C30C30C30C3L;
+		v = (v | v << 2) & 0x1249249249249249L;
+		return v;
+	}
+	
+	
+	private static int[] permute(int[] values, int[] order) {
+		final int[] out = new int[order.length];
+		for (int k = 0; k < order.length; k ++)
+			out[k] = values[order[k]];
+		return out;
+	}
+	
+	
+	private static boolean[] permute(boolean[] values, int[] order) {
+		final boolean[] out = new boolean[order.length];
+		for (int k = 0; k < order.length; k ++)
+			out[k] = values[order[k]];
+		return out;
+	}
+	
+	
+	private static double[] permute(double[] values, int[] order) {
+		final double[] out = new double[order.length];
+		for (int k = 0; k < order.length; k ++)
+			out[k] = values[order[k]];
+		return out;
+	}
+	
+	
+	private static double reachOf(Body b) {	// the farthest away anyone could see this in any band
+		double reach = 0;
+		for (int band = 0; band < Body.NUM_BANDS; band ++)
+			reach = Math.max(reach, Ship.visibilityRadius(b.peakLuminosity(band)));
+		return reach;
+	}
+	
+	
+	private void addSegment(Body b, int m, boolean first, double t0, double x0, double y0, double vx, double vy,
+			double start, double end) {	// records a piece of b's motion and the box it fills between start and end
+		final double xa = x0 + vx*(start-t0), xb = x0 + vx*(end-t0);
+		final double ya = y0 + vy*(start-t0), yb = y0 + vy*(end-t0);
+		if (!(end >= start) || Double.isNaN(xa+xb+ya+yb))
+			return;	// something that is nowhere can't be seen
+		if (numSegments >= owners.length)
+			allocateSegments(2*owners.length);
+		final int s = numSegments ++;
+		owners[s] = m;
+		firsts[s] = first;
+		t0s[s] = t0;
+		x0s[s] = x0;
+		y0s[s] = y0;
+		vxs[s] = vx;
+		vys[s] = vy;
+		tMins[s] = start;
+		tMaxs[s] = end;
+		xMins[s] = Math.min(xa, xb);
+		xMaxs[s] = Math.max(xa, xb);
+		yMins[s] = Math.min(ya, yb);
+		yMaxs[s] = Math.max(ya, yb);
+		for (int band = 0; band < reaches.length; band ++) {
+			final double reach = Ship.visibilityRadius(b.peakLuminosity(band, start, end));
+			reaches[band][s] = reach*reach;
+		}
+	}
+	
+	
+	private void allocateSegments(int capacity) {
+		if (owners == null) {
+			owners = new int[capacity];
+			firsts = new boolean[capacity];
+			t0s = new double[capacity];
+			x0s = new double[capacity];
+			y0s = new double[capacity];
+			vxs = new double[capacity];
+			vys = new double[capacity];
+			tMins = new double[capacity];
+			tMaxs = new double[capacity];
+			xMins = new double[capacity];
+			xMaxs = new double[capacity];
+			yMins = new double[capacity];
+			yMaxs = new double[capacity];
+			for (int band = 0; band < reaches.length; band ++)
+				reaches[band] = new double[capacity];
+		}
+		else {
+			owners = Arrays.copyOf(owners, capacity);
+			firsts = Arrays.copyOf(firsts, capacity);
+			t0s = Arrays.copyOf(t0s, capacity);
+			x0s = Arrays.copyOf(x0s, capacity);
+			y0s = Arrays.copyOf(y0s, capacity);
+			vxs = Arrays.copyOf(vxs, capacity);
+			vys = Arrays.copyOf(vys, capacity);
+			tMins = Arrays.copyOf(tMins, capacity);
+			tMaxs = Arrays.copyOf(tMaxs, capacity);
+			xMins = Arrays.copyOf(xMins, capacity);
+			xMaxs = Arrays.copyOf(xMaxs, capacity);
+			yMins = Arrays.copyOf(yMins, capacity);
+			yMaxs = Arrays.copyOf(yMaxs, capacity);
+			for (int band = 0; band < reaches.length; band ++)
+				reaches[band] = Arrays.copyOf(reaches[band], capacity);
+		}
+	}
+
+}
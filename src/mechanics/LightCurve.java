@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The luminosity spikes one <code>Body</code> has received in one frequency
+ * band. Each spike starts at some amount and fades linearly to nothing over its
+ * duration, so while it's active it contributes a + a*t0/d - t*a/d. That means
+ * the total at any time is three sums over the active spikes, and each of those
+ * is a prefix sum over the spikes that have started minus a prefix sum over the
+ * spikes that have ended. Two binary searches and a handful of subtractions,
+ * and no looping over spikes at all. Infinite spikes (like a radar ping) would
+ * turn those sums into NaN, so they're counted separately instead, and any time
+ * one of them is active the total is simply infinite. Only the spikes get saved,
+ * since the sums can always be worked out again and most curves are empty.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class LightCurve implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private double origin;	// all times are stored relative to this, so the sums don't lose precision
+	private int size;		// the number of spikes
+	private int added;		// the number of spikes that have ever been added
+	
+	private transient double[] sT, sA, sD;	// the start, amount, and duration of each spike, sorted by start
+	private transient double[] sSumA, sSumB, sSumC;	// the prefix sums of a, a/d, and a*t0/d in start order (one longer than the others)
+	private transient int[] sInf;					// the prefix counts of infinite spikes in start order, which the sums skip
+	
+	private transient double[] eT, eS, eA, eD;	// the end, start, amount, and duration of each spike, sorted by end
+	private transient double[] eSumA, eSumB, eSumC;	// the same prefix sums in end order
+	private transient int[] eInf;					// and the same counts
+	
+	
+	
+	public LightCurve() {
+		size = 0;
+		added = 0;
+		allocate(4);
+	}
+	
+	
+	
+	public double valueAt(double t) {	// the total luminosity of all the spikes at time t
+		final double u = t - origin;
+		final int i = countAtOrBefore(sT, u);	// the spikes that have started
+		final int j = countAtOrBefore(eT, u);	// the spikes that have ended (which have all started, too)
+		if (i == j)
+			return 0;	// (this catches the usual case exactly, without any rounding error)
+		if (sInf[i] > eInf[j])
+			return Double.POSITIVE_INFINITY;
+		final double a = sSumA[i] - eSumA[j];
+		final double b = sSumB[i] - eSumB[j];
+		final double c = sSumC[i] - eSumC[j];
+		return Math.max(0, a - u*b + c);
+	}
+	
+	
+	public void add(double t0, double amount, double duration) {	// adds a spike
+		if (!(duration > 0))
+			return;		// spikes with no duration are never seen
+		if (size == 0)
+			origin = t0;
+		if (size >= sT.length)
+			grow();
+		final double u0 = t0 - origin;
+		
+		final int i = countAtOrBefore(sT, u0);	// put it in the start list
+		System.arraycopy(sT, i, sT, i+1, size-i);
+		System.arraycopy(sA, i, sA, i+1, size-i);
+		System.arraycopy(sD, i, sD, i+1, size-i);
+		sT[i] = u0;
+		sA[i] = amount;
+		sD[i] = duration;
+		
+		final int j = countAtOrBefore(eT, u0 + duration);	// and the end list
+		System.arraycopy(eT, j, eT, j+1, size-j);
+		System.arraycopy(eS, j, eS, j+1, size-j);
+		System.arraycopy(eA, j, eA, j+1, size-j);
+		System.arraycopy(eD, j, eD, j+1, size-j);
+		eT[j] = u0 + duration;
+		eS[j] = u0;
+		eA[j] = amount;
+		eD[j] = duration;
+		
+		size ++;
+		added ++;
+		sumFrom(i, j);	// (spikes usually come in order, so this is usually just the last entry)
+	}
+	
+	
+	public void evict(double t) {	// forgets every spike that had ended by time t
+		final double u = t - origin;
+		final int k = countAtOrBefore(eT, u);
+		if (k == 0)	return;
+		
+		final double shift = (k < size) ? -min(eS, k, size) : 0;	// move the origin up to the earliest survivor
+		int n = 0;
+		for (int i = 0; i < size; i ++) {	// filter the start list, keeping it in order
+			if (sT[i] + sD[i] > u) {		// (the end list has exactly these values, so the two always agree)
+				sT[n] = sT[i] + shift;
+				sA[n] = sA[i];
+				sD[n] = sD[i];
+				n ++;
+			}
+		}
+		for (int j = k; j < size; j ++) {	// the survivors in the end list are the ones at the end
+			eS[j-k] = eS[j] + shift;
+			eT[j-k] = eS[j-k] + eD[j];
+			eA[j-k] = eA[j];
+			eD[j-k] = eD[j];
+		}
+		size -= k;
+		origin -= shift;
+		sumFrom(0, 0);
+	}
+	
+	
+	public double peak() {	// the sum of every spike, which valueAt can never exceed
+		if (sInf[size] > 0)
+			return Double.POSITIVE_INFINITY;
+		return sSumA[size];
+	}
+	
+	
+	public double peak(double ta, double tb) {	// the sum of every spike active at some point between ta and tb
+		final int i = countAtOrBefore(sT, tb - origin);	// the spikes that had started by tb
+		final int j = countAtOrBefore(eT, ta - origin);	// minus the ones that had already ended by ta
+		if (sInf[i] > eInf[j])
+			return Double.POSITIVE_INFINITY;
+		return Math.max(0, sSumA[i] - eSumA[j]);
+	}
+	
+	
+	public int added() {	// how many spikes have ever been added, so anyone can tell if there are new ones
+		return added;
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	private void sumFrom(int i0, int j0) {	// fills in the prefix sums after the given indices
+		for (int i = i0; i < size; i ++) {
+			final boolean inf = Double.isInfinite(sA[i]);
+			final double a = inf ? 0 : sA[i];
+			final double b = a/sD[i];
+			sSumA[i+1] = sSumA[i] + a;
+			sSumB[i+1] = sSumB[i] + b;
+			sSumC[i+1] = sSumC[i] + b*sT[i];
+			sInf[i+1] = sInf[i] + (inf ? 1 : 0);
+		}
+		for (int j = j0; j < size; j ++) {
+			final boolean inf = Double.isInfinite(eA[j]);
+			final double a = inf ? 0 : eA[j];
+			final double b = a/eD[j];
+			eSumA[j+1] = eSumA[j] + a;
+			eSumB[j+1] = eSumB[j] + b;
+			eSumC[j+1] = eSumC[j] + b*eS[j];
+			eInf[j+1] = eInf[j] + (inf ? 1 : 0);
+		}
+	}
+	
+	
+	private int countAtOrBefore(double[] sorted, double u) {	// the number of the first size values that are <= u
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (sorted[mid] <= u)	lo = mid+1;
+			else					hi = mid;
+		}
+		return lo;
+	}
+	
+	
+	private void allocate(int n) {	// makes room for n spikes
+		sT = new double[n];
+		sA = new double[n];
+		sD = new double[n];
+		eT = new double[n];
+		eS = new double[n];
+		eA = new double[n];
+		eD = new double[n];
+		sSumA = new double[n+1];
+		sSumB = new double[n+1];
+		sSumC = new double[n+1];
+		eSumA = new double[n+1];
+		eSumB = new double[n+1];
+		eSumC = new double[n+1];
+		sInf = new int[n+1];
+		eInf = new int[n+1];
+	}
+	
+	
+	private void grow() {
+		final int n = 2*sT.length;
+		sT = Arrays.copyOf(sT, n);
+		sA = Arrays.copyOf(sA, n);
+		sD = Arrays.copyOf(sD, n);
+		eT = Arrays.copyOf(eT, n);
+		eS = Arrays.copyOf(eS, n);
+		eA = Arrays.copyOf(eA, n);
+		eD = Arrays.copyOf(eD, n);
+		sSumA = Arrays.copyOf(sSumA, n+1);
+		sSumB = Arrays.copyOf(sSumB, n+1);
+		sSumC = Arrays.copyOf(sSumC, n+1);
+		eSumA = Arrays.copyOf(eSumA, n+1);
+		eSumB = Arrays.copyOf(eSumB, n+1);
+		eSumC = Arrays.copyOf(eSumC, n+1);
+		sInf = Arrays.copyOf(sInf, n+1);
+		eInf = Arrays.copyOf(eInf, n+1);
+	}
+	
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {	// saves just the spikes, in both orders
+		out.defaultWriteObject();
+		for (int i = 0; i < size; i ++) {
+			out.writeDouble(sT[i]);
+			out.writeDouble(sA[i]);
+			out.writeDouble(sD[i]);
+		}
+		for (int j = 0; j < size; j ++) {
+			out.writeDouble(eT[j]);
+			out.writeDouble(eS[j]);
+			out.writeDouble(eA[j]);
+			out.writeDouble(eD[j]);
+		}
+	}
+	
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {	// and works out the sums again
+		in.defaultReadObject();
+		allocate(Math.max(4, size));
+		for (int i = 0; i < size; i ++) {
+			sT[i] = in.readDouble();
+			sA[i] = in.readDouble();
+			sD[i] = in.readDouble();
+		}
+		for (int j = 0; j < size; j ++) {
+			eT[j] = in.readDouble();
+			eS[j] = in.readDouble();
+			eA[j] = in.readDouble();
+			eD[j] = in.readDouble();
+		}
+		sumFrom(0, 0);	// (which come out exactly the same, since each one only depends on the ones before it)
+	}
+	
+	
+	private static double min(double[] values, int from, int to) {
+		double min = Double.POSITIVE_INFINITY;
+		for (int i = from; i < to; i ++)
+			min = Math.min(min, values[i]);
+		return min;
+	}
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+/**
+ * A <code>SimClock</code> that only moves when it is told to, for headless runs
+ * and benchmarks.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class ManualClock implements SimClock {
+
+	private double t;	// the current time
+	
+	
+	
+	public ManualClock(double t0) {
+		t = t0;
+	}
+	
+	
+	
+	@Override
+	public double now() {
+		return t;
+	}
+	
+	
+	public void set(double time) {	// jumps to a time
+		t = time;
+	}
+	
+	
+	public void advance(double dt) {	// moves forward by dt
+		t += dt;
+	}
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import mechanics.ship_classes.Carrier;
+
+/**
+ * A snapshot of what the fleet can see at one instant, so that each light-cone
+ * only needs to be solved once per frame no matter how many times it is asked
+ * about.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Observation {
+
+	private final double t;				// the time this snapshot was taken
+	private final Ship[] ships;			// the ships that are doing the seeing
+	private final double[] relayTimes;	// the time at which the carrier sees each ship
+	private final IdentityHashMap<Body, Double> observedTimes;	// the best time each body has been seen at so far
+	private final LightConeIndex index;	// where everything recent has been, if anyone has it handy
+	private double[] swept;				// the best time each body in the index was seen at, by slot, once anyone asks
+	
+	
+	
+	public Observation(Carrier carrier, List<Ship> fleet, double time) {
+		this(carrier, fleet, time, null);
+	}
+	
+	
+	public Observation(Carrier carrier, List<Ship> fleet, double time, LightConeIndex cones) {
+		t = time;
+		ships = fleet.toArray(new Ship[fleet.size()]);
+		relayTimes = new double[ships.length];
+		for (int i = 0; i < ships.length; i ++)	// figure out when we hear from each ship
+			relayTimes[i] = carrier.sees(ships[i], t);
+		observedTimes = new IdentityHashMap<Body, Double>();
+		index = cones;
+		swept = null;
+	}
+	
+	
+	
+	public double getTime() {
+		return t;
+	}
+	
+	
+	public double observedTime(Body b) {	// the time at which you see this object
+		final Double cached = observedTimes.get(b);
+		if (cached != null)
+			return cached;
+		
+		final int slot = (index != null) ? index.slotOf(b) : -1;
+		if (slot >= 0) {	// if the index knows about it, one sweep answers for everything
+			if (swept == null)
+				sweep();
+			observedTimes.put(b, swept[slot]);
+			return swept[slot];
+		}
+		
+		double to = Double.NaN;
+		for (int i = 0; i < ships.length; i ++) {	// check each ship
+			final double ts = ships[i].sees(b, relayTimes[i]);	// when would you see that ship see b?
+			if ((Double.isNaN(to) && !Double.isNaN(ts)) || ts > to)	// if that ship has the best observation time (and is not NaN)
+				to = ts;		// then choose that time
+		}
+		
+		observedTimes.put(b, to);
+		return to;		// return the best time
+	}
+	
+	
+	private void sweep() {	// asks the index what each ship saw, all at once
+		swept = new double[index.size()];
+		Arrays.fill(swept, Double.NaN);
+		for (int i = 0; i < ships.length; i ++) {
+			if (Double.isNaN(relayTimes[i]) || !ships[i].canSee(relayTimes[i]))
+				continue;
+			final int n = index.query(ships[i].xValAt(relayTimes[i]), ships[i].yValAt(relayTimes[i]), relayTimes[i],
+					ships[i].getVisibilityBand());
+			for (int k = 0; k < n; k ++) {
+				final double ts = ships[i].sees(index, k, relayTimes[i]);
+				if (Double.isNaN(ts))
+					continue;
+				final int slot = index.slotAt(k);
+				if (Double.isNaN(swept[slot]) || ts > swept[slot])	// keep whichever ship has the best observation time
+					swept[slot] = ts;
+			}
+		}
+	}
+	
+	
+	public double observedTime(double x0, double y0, double vx, double vy, double t0) {	// the same, for a speck of debris
+		double to = Double.NaN;
+		for (int i = 0; i < ships.length; i ++) {
+			final double ts = ships[i].sees(x0, y0, vx, vy, t0, relayTimes[i]);
+			if ((Double.isNaN(to) && !Double.isNaN(ts)) || ts > to)
+				to = ts;
+		}
+		return to;
+	}
+
+}
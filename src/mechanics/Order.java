@@ -29,6 +29,8 @@ package mechanics;
  */
 public class Order extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	private byte orderType;		// the type of order
 	private byte targetShip;	// the ship being ordered
 	private double xTarg;		// the x value this order refers to
@@ -51,26 +53,55 @@ public class Order extends Body {
 	
 	@Override
 	public void interactWith(Body that, double t) {
-		if (that instanceof Ship && space.dist(this,that,t) < this.rValAt(t)) {
-			if (((Ship) that).getID() == this.targetShip) {
-				switch (orderType) {
-				case -2:
-					((Ship) that).move(xTarg, yTarg, t);
-					break;
-				case -3:
-					((Ship) that).shoot(xTarg, yTarg, t);
-					break;
-				case -4:
-					((Ship) that).special(xTarg, yTarg, t);
-					break;
-				}
-				
-				receiptTime = t;
+		if (touches(that, t)) {
+			switch (orderType) {
+			case -2:
+				((Ship) that).move(xTarg, yTarg, t);
+				break;
+			case -3:
+				((Ship) that).shoot(xTarg, yTarg, t);
+				break;
+			case -4:
+				((Ship) that).special(xTarg, yTarg, t);
+				break;
 			}
+			
+			receiptTime = t;
+			invalidate();
 		}
 	}
 	
 	
+	@Override
+	public boolean touches(Body that, double t) {	// orders only care about the ship they're addressed to
+		return that instanceof Ship && ((Ship) that).getID() == this.targetShip && space.dist(this,that,t) < this.rValAt(t);
+	}
+	
+	
+	@Override
+	public int kind() {
+		return ORDER;
+	}
+	
+	
+	@Override
+	public int interactsWith() {
+		return 1 << SHIP;
+	}
+	
+	
+	@Override
+	public double interactionRadius(double t) {
+		return rValAt(t);
+	}
+	
+	
+	@Override
+	public double contactGrowth() {	// the front expands at the speed of light
+		return Univ.c;
+	}
+	
+	
 	@Override
 	public String spriteName() {
 		return "_";
@@ -84,8 +115,20 @@ public class Order extends Body {
 	
 	
 	@Override
-	public double seenBy(Body observer, double to) {	// orders are weird in that their position is different
-		return to - age(to)/2;							// from where they appear to be, so we can skip this method
+	public double endTime() {	// an order that never arrives is done once it has swept the whole map
+		return Math.min(receiptTime, birthTime() + 2*Battlefield.MAP_RADIUS/Univ.c);
+	}
+	
+	
+	@Override
+	public boolean seenAlongPath() {
+		return false;
+	}
+	
+	
+	@Override
+	protected double retardedTime(double xo, double yo, double to, Sightline hint) {	// orders are weird in that their position
+		return to - age(to)/2;	// is different from where they appear to be, so we can skip this method
 	}
 	
 	
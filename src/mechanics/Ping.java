@@ -29,6 +29,8 @@ package mechanics;
  */
 public class Ping extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	private double flux;
 	private double duration;
 	
@@ -70,9 +72,41 @@ public class Ping extends Body {
 	
 	@Override
 	public void interactWith(Body b, double t) {
-		final double r = space.dist(this, b, t);
-		if (r <= rValAt(t) && r > lastUpdateRadius)		// if we just hit this object
+		if (touches(b, t)) {		// if we just hit this object
+			final double r = space.dist(this, b, t);
 			b.illuminate(flux/(r*r), duration, 1, t);	// light it up in the radio band
+		}
+	}
+	
+	
+	@Override
+	public boolean touches(Body b, double t) {
+		final double r = space.dist(this, b, t);
+		return r <= rValAt(t) && r > lastUpdateRadius;
+	}
+	
+	
+	@Override
+	public int kind() {
+		return PING;
+	}
+	
+	
+	@Override
+	public int interactsWith() {
+		return ALL_KINDS;
+	}
+	
+	
+	@Override
+	public double interactionRadius(double t) {
+		return rValAt(t);
+	}
+	
+	
+	@Override
+	public double contactGrowth() {	// the front expands at the speed of light
+		return Univ.c;
 	}
 	
 	
@@ -83,8 +117,20 @@ public class Ping extends Body {
 	
 	
 	@Override
-	public double seenBy(Body observer, double to) {	// pings are weird in that their position is different
-		return to - age(to)/2;							// from where they appear to be, so we can skip this method
+	public double endTime() {	// a ping is done once it has swept the whole map
+		return birthTime() + 2*Battlefield.MAP_RADIUS/Univ.c;
+	}
+	
+	
+	@Override
+	public boolean seenAlongPath() {
+		return false;
+	}
+	
+	
+	@Override
+	protected double retardedTime(double xo, double yo, double to, Sightline hint) {	// pings are weird in that their position
+		return to - age(to)/2;	// is different from where they appear to be, so we can skip this method
 	}
 	
 	
@@ -99,6 +145,24 @@ public class Ping extends Body {
 	}
 	
 	
+	@Override
+	public double peakLuminosity(int band) {
+		if (band == 1)
+			return super.peakLuminosity(band);
+		else
+			return 0;
+	}
+	
+	
+	@Override
+	public double peakLuminosity(int band, double ta, double tb) {
+		if (band == 1)
+			return super.peakLuminosity(band, ta, tb);
+		else
+			return 0;
+	}
+	
+	
 	private double rValAt(double t) {
 		return age(t)*Univ.c;
 	}
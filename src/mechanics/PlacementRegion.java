@@ -2,6 +2,8 @@ package mechanics;
 
 public class PlacementRegion extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double X_DEV = 187500000*Univ.m;
 	public static final double Y_DEV = 375000000*Univ.m;
 	public static final double LOCATION = -300000000*Univ.m;
@@ -29,6 +29,8 @@ package mechanics;
  */
 public class Planet extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	private String name;
 	private double radius;
 	
@@ -44,12 +46,36 @@ public class Planet extends Body {
 	
 	@Override
 	public void interactWith(Body that, double t) {
-		if (space.dist(this, that, t) < radius) {
-			if (that instanceof Ship)
-				((Ship) that).damaged(((Ship) that).hValAt(t), t);
-			else if (that instanceof Laser)
-				((Laser) that).collide(t);
-		}
+		if (that instanceof Laser)	// lasers get swept, since they can go a long way in one update
+			((Laser) that).contact(this, ((Laser) that).sweep(this, radius, t));
+		else if (touches(that, t))
+			((Ship) that).damaged(((Ship) that).hValAt(t), t);
+	}
+	
+	
+	@Override
+	public boolean touches(Body that, double t) {
+		if (that instanceof Laser)
+			return !Double.isNaN(((Laser) that).sweep(this, radius, t));
+		return that instanceof Ship && space.dist(this, that, t) < radius;
+	}
+	
+	
+	@Override
+	public int kind() {
+		return PLANET;
+	}
+	
+	
+	@Override
+	public int interactsWith() {
+		return 1 << SHIP | 1 << LASER | 1 << UV_LASER;
+	}
+	
+	
+	@Override
+	public double interactionRadius(double t) {
+		return radius;
 	}
 	
 	
@@ -59,9 +85,27 @@ public class Planet extends Body {
 	}
 	
 	
+	@Override
+	protected double retardedTime(double xo, double yo, double to, Sightline hint) {	// planets never move, so the light
+		return to - Math.hypot(xValAt(to) - xo, yValAt(to) - yo)/Univ.c;	// just has to cross the distance between
+	}
+	
+	
 	@Override
 	public double luminosityAt(int band, double t) {	// chances are, you already know where the planet is
 		return Double.POSITIVE_INFINITY;
 	}
+	
+	
+	@Override
+	public double peakLuminosity(int band) {
+		return Double.POSITIVE_INFINITY;
+	}
+	
+	
+	@Override
+	public double peakLuminosity(int band, double ta, double tb) {
+		return Double.POSITIVE_INFINITY;
+	}
 
 }
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+/**
+ * A <code>SimClock</code> that follows the wall clock, but ticks off of
+ * <code>System.nanoTime()</code> so that it never jumps or runs backward.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class RealTimeClock implements SimClock {
+
+	private final double epoch;	// the wall-clock time when this was made (so that both players agree on the time)
+	private final long start;	// the nanoTime when this was made
+	
+	
+	
+	public RealTimeClock() {
+		epoch = (double)System.currentTimeMillis();
+		start = System.nanoTime();
+	}
+	
+	
+	
+	@Override
+	public double now() {
+		return epoch + (System.nanoTime() - start)/1000000.0*Univ.ms;
+	}
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Plays back a <code>Journal</code>. The file is memory-mapped, and seeking
+ * loads the nearest keyframe before the requested time and re-simulates from
+ * there, so it never has to start from the beginning of the match. The
+ * <code>Battlefield</code> it produces runs on a <code>ManualClock</code>, so
+ * it can be played back as fast as anyone likes by calling
+ * <code>advanceTo</code> with the time from any other clock.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Replay {
+
+	private MappedByteBuffer data;	// the whole journal
+	private int end;				// where the records stop
+	private double lastTime;		// the time of the last update in the journal
+	private double[] keyTimes;		// the time of each keyframe
+	private int[] keyOffsets;		// where in the file each keyframe starts
+	private int numKeys;
+	
+	private Battlefield field;		// the game as of the last seek
+	private int cursor;				// the next record to play
+	
+	
+	
+	public Replay(File file) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+			final FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException(file+" is too big to map");
+			data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());	// (the mapping outlives the channel)
+		}
+		if (data.capacity() < Journal.HEADER_SIZE || data.getInt(0) != Journal.MAGIC)
+			throw new IOException(file+" is not a journal");
+		
+		if (!readIndex())
+			scan();	// if the game crashed before the index got written, find the keyframes the slow way
+		if (numKeys == 0)
+			throw new IOException(file+" has no keyframes");
+	}
+	
+	
+	
+	public Battlefield seek(double t) throws IOException {	// loads the game as it was at time t
+		int k = Arrays.binarySearch(keyTimes, 0, numKeys, t);
+		if (k < 0)	k = Math.max(0, -k-2);	// find the last keyframe at or before t
+		
+		final int offset = keyOffsets[k];
+		final double tk = data.getDouble(offset+1);
+		final byte[] bytes = read(offset+13, data.getInt(offset+9));
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			field = (Battlefield) in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("keyframe at "+tk+" is from a different version of the game", e);
+		}
+		field.attach(null, new ManualClock(tk));	// nothing gets sent anywhere during a replay
+		cursor = offset + 13 + bytes.length;
+		
+		advanceTo(t);
+		return field;
+	}
+	
+	
+	public void advanceTo(double t) {	// re-simulates every update up to time t
+		while (cursor < end) {
+			final byte type = data.get(cursor);
+			if (type == Journal.TICK) {
+				final double tt = data.getDouble(cursor+1);
+				if (tt > t)	break;
+				cursor += 9;
+				while (cursor < end && data.get(cursor) == Journal.MESSAGE)	// feed it the messages from this update
+					cursor = readMessage(cursor);
+				field.advanceTo(tt);	// and do the update
+			}
+			else if (type == Journal.MESSAGE)
+				cursor = readMessage(cursor);
+			else if (type == Journal.KEYFRAME)
+				cursor += 13 + data.getInt(cursor+9);	// we already have a game going, so keyframes are just in the way
+			else
+				break;
+		}
+	}
+	
+	
+	public Battlefield getField() {
+		return field;
+	}
+	
+	
+	public double getStartTime() {
+		return keyTimes[0];
+	}
+	
+	
+	public double getEndTime() {
+		return lastTime;
+	}
+	
+	
+	private int readMessage(int i) {	// passes the message at i to the field and returns the start of the next record
+		final boolean transmit = data.get(i+1) != 0;
+		final byte[] bytes = read(i+6, data.getInt(i+2));
+		field.receive(new String(bytes, StandardCharsets.UTF_8), transmit);
+		return i + 6 + bytes.length;
+	}
+	
+	
+	private byte[] read(int start, int length) {	// copies a stretch of the journal out
+		final ByteBuffer view = data.duplicate();	// (on a copy of the buffer, so the original's position stays put)
+		view.position(start);
+		final byte[] bytes = new byte[length];
+		view.get(bytes);
+		return bytes;
+	}
+	
+	
+	private boolean readIndex() {	// reads the index from the end of the file, if it's there
+		final int size = data.capacity();
+		if (size < Journal.HEADER_SIZE + 21)	return false;
+		final long indexOffset = data.getLong(size-8);
+		if (indexOffset < Journal.HEADER_SIZE || indexOffset > size-21)	return false;
+		final int i = (int) indexOffset;
+		if (data.get(i) != Journal.INDEX)	return false;
+		final int n = data.getInt(i+9);
+		if (n < 0 || i + 13 + 16L*n + 8 != size)	return false;
+		
+		end = i;
+		lastTime = data.getDouble(i+1);
+		keyTimes = new double[n];
+		keyOffsets = new int[n];
+		for (int k = 0; k < n; k ++) {
+			keyTimes[k] = data.getDouble(i+13+16*k);
+			keyOffsets[k] = (int) data.getLong(i+21+16*k);
+		}
+		numKeys = n;
+		return true;
+	}
+	
+	
+	private void scan() {	// goes through every record to find the keyframes and the end
+		final int size = data.capacity();
+		keyTimes = new double[16];
+		keyOffsets = new int[16];
+		numKeys = 0;
+		lastTime = Double.NEGATIVE_INFINITY;
+		int i = Journal.HEADER_SIZE;
+		while (true) {
+			int next;	// the start of the record after this one, if this one is all there
+			if (i >= size)
+				break;
+			else if (data.get(i) == Journal.TICK)
+				next = (i+9 <= size) ? i+9 : -1;
+			else if (data.get(i) == Journal.MESSAGE)
+				next = (i+6 <= size) ? i+6+data.getInt(i+2) : -1;
+			else if (data.get(i) == Journal.KEYFRAME)
+				next = (i+13 <= size) ? i+13+data.getInt(i+9) : -1;
+			else
+				break;
+			if (next < 0 || next > size)
+				break;	// the last record got cut off
+			
+			if (data.get(i) == Journal.TICK)
+				lastTime = data.getDouble(i+1);
+			else if (data.get(i) == Journal.KEYFRAME) {
+				if (numKeys == keyTimes.length) {
+					keyTimes = Arrays.copyOf(keyTimes, 2*numKeys);
+					keyOffsets = Arrays.copyOf(keyOffsets, 2*numKeys);
+				}
+				keyTimes[numKeys] = data.getDouble(i+1);
+				keyOffsets[numKeys] = i;
+				numKeys ++;
+			}
+			i = next;
+		}
+		end = i;
+	}
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * The last few seconds of a <code>Battlefield</code>'s history, kept so that
+ * an order that arrives late can be put in at the time it was actually sent.
+ * It saves the whole state at regular checkpoints and remembers every update
+ * and message since the oldest one. To insert a late order, it goes back to
+ * the last checkpoint before the order and redoes every update from there, so
+ * the cost is never more than one checkpoint interval plus the latency. The
+ * checkpoints themselves are incremental: a body only gets saved again once
+ * something has touched it, so each one just re-saves whatever is still flying
+ * around, and not the many bodies that are done but can still be seen. It
+ * goes into keyframes along with the rest of the <code>Battlefield</code>, so a
+ * replay that starts from one can rewind for a late order just like the game
+ * did the first time. Only the oldest checkpoint goes in, though, since redoing
+ * the updates after it always comes out exactly the same.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Rollback implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	public static final double CHECKPOINT_INTERVAL = 100*Univ.ms;	// how often to save the state
+	public static final double WINDOW = 2*Univ.s;	// how far back orders can be put in (any later than this and they're just late)
+	
+	
+	private Battlefield space;				// the Battlefield this remembers
+	private transient ArrayList<Checkpoint> checkpoints;	// the saved states, oldest first
+	private ArrayList<Tick> ticks;			// every update since the oldest checkpoint, oldest first
+	
+	
+	
+	public Rollback(Battlefield field) {
+		space = field;
+		checkpoints = new ArrayList<Checkpoint>();
+		ticks = new ArrayList<Tick>();
+	}
+	
+	
+	
+	public void tick(double t) {	// remembers that the Battlefield updated to time t
+		ticks.add(new Tick(t));
+	}
+	
+	
+	public void message(String data, boolean transmit) {	// remembers a message that got handled in the current update
+		final Tick current = ticks.get(ticks.size()-1);
+		current.data.add(data);
+		current.transmit.add(transmit);
+	}
+	
+	
+	public boolean checkpointDue(double t) {	// whether it has been long enough since the last checkpoint
+		return checkpoints.isEmpty() || t - checkpoints.get(checkpoints.size()-1).time >= CHECKPOINT_INTERVAL;
+	}
+	
+	
+	public void checkpoint(double t) {	// saves the state as of the end of the update at time t
+		checkpoints.add(new Checkpoint(t, space.saveState()));
+		
+		int oldest = 0;		// keep just enough checkpoints to cover the window
+		while (oldest+1 < checkpoints.size() && checkpoints.get(oldest+1).time <= t - WINDOW)
+			oldest ++;
+		checkpoints.subList(0, oldest).clear();
+		
+		final double t0 = checkpoints.get(0).time;	// and forget updates that are already in all of them
+		int first = 0;
+		while (first < ticks.size() && ticks.get(first).time <= t0)
+			first ++;
+		ticks.subList(0, first).clear();
+	}
+	
+	
+	public boolean rewind(double t0, String data, boolean transmit) {	// redoes history as if data had arrived in the first update after t0
+		int k = checkpoints.size()-1;
+		while (k >= 0 && checkpoints.get(k).time > t0)	// find the last checkpoint before it
+			k --;
+		if (k < 0)
+			return false;	// if it's from too long ago, there's nothing to be done
+		final Checkpoint start = checkpoints.get(k);
+		
+		int first = 0;
+		while (first < ticks.size() && ticks.get(first).time <= start.time)
+			first ++;
+		final ArrayList<Tick> redo = new ArrayList<Tick>(ticks.subList(first, ticks.size()));
+		int slot = 0;
+		while (slot < redo.size() && redo.get(slot).time < t0)	// find the update it should have been handled in
+			slot ++;
+		if (slot >= redo.size())
+			return false;	// if that update hasn't happened yet, it's not late after all
+		redo.get(slot).data.add(data);
+		redo.get(slot).transmit.add(transmit);
+		
+		checkpoints.subList(k+1, checkpoints.size()).clear();	// everything after the checkpoint is about to change
+		ticks.subList(first, ticks.size()).clear();
+		space.loadState(start.state);
+		for (Tick tick: redo)
+			space.resimulate(tick.time, tick.data, tick.transmit);	// (which puts new ticks and checkpoints in as it goes)
+		return true;
+	}
+	
+	
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {	// saves the oldest checkpoint and every update since
+		out.defaultWriteObject();
+		if (checkpoints.isEmpty())
+			out.writeObject(null);
+		else	// (packed into one batch, since it shares most of its bodies with checkpoints that don't go in)
+			out.writeObject(new Checkpoint(checkpoints.get(0).time, space.repack(checkpoints.get(0).state)));
+	}
+	
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		checkpoints = new ArrayList<Checkpoint>();
+		final Checkpoint oldest = (Checkpoint) in.readObject();
+		if (oldest != null)
+			checkpoints.add(oldest);
+	}
+	
+	
+	
+	private static class Checkpoint implements Serializable {	// the state of the Battlefield after some update
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final double time;
+		private final byte[][] state;	// (bodies that haven't changed share their arrays with earlier checkpoints)
+		
+		
+		private Checkpoint(double t, byte[][] s) {
+			this.time = t;
+			this.state = s;
+		}
+	}
+	
+	
+	private static class Tick implements Serializable {	// an update and the messages it handled
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final double time;
+		private final ArrayList<String> data;
+		private final ArrayList<Boolean> transmit;
+		
+		
+		private Tick(double t) {
+			this.time = t;
+			this.data = new ArrayList<String>(0);
+			this.transmit = new ArrayList<Boolean>(0);
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+/**
+ * A <code>SimClock</code> that runs some multiple faster or slower than
+ * another <code>SimClock</code>.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class ScaledClock implements SimClock {
+
+	private final SimClock base;	// the clock this follows
+	private double rate;			// how many milliseconds pass here for every one that passes on base
+	private double baseOrigin;		// the time on base when the rate was last set
+	private double origin;			// the time here when the rate was last set
+	
+	
+	
+	public ScaledClock(SimClock baseClock, double r) {
+		base = baseClock;
+		rate = r;
+		baseOrigin = base.now();
+		origin = baseOrigin;
+	}
+	
+	
+	
+	@Override
+	public synchronized double now() {
+		return origin + rate*(base.now() - baseOrigin);
+	}
+	
+	
+	public synchronized void setRate(double r) {	// changes the rate without making the time jump
+		final double b = base.now();
+		origin = origin + rate*(b - baseOrigin);
+		baseOrigin = b;
+		rate = r;
+	}
+	
+	
+	public synchronized double getRate() {
+		return rate;
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The layout of a map: every planet, moon, and asteroid that sits in it. A
+ * scenario file has one obstacle per line, in the form
+ * <code>sprite%x%y%radius</code>, with distances in miles.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Scenario {
+
+	public static final Scenario JUPITER = new Scenario(new String[] {"Jupiter"},	// the original map
+			new double[] {0}, new double[] {0}, new double[] {43441*Univ.mi});
+	
+	
+	private final String[] names;	// the sprite of each obstacle
+	private final double[] xs, ys;	// the position of each obstacle
+	private final double[] rs;		// the radius of each obstacle
+	
+	
+	
+	public Scenario(String[] names, double[] xs, double[] ys, double[] rs) {
+		this.names = names;
+		this.xs = xs;
+		this.ys = ys;
+		this.rs = rs;
+	}
+	
+	
+	
+	public static Scenario load(File file) throws IOException {	// reads a scenario file
+		final List<String[]> lines = new ArrayList<String[]>();
+		try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.trim().isEmpty())	continue;	// (blank lines don't count)
+				final String[] fields = line.split("%");
+				if (fields.length != 4)
+					throw new IOException("'"+line+"' in "+file+" should look like sprite%x%y%radius");
+				lines.add(fields);
+			}
+		}
+		
+		final int n = lines.size();
+		final String[] names = new String[n];
+		final double[] xs = new double[n], ys = new double[n], rs = new double[n];
+		try {
+			for (int i = 0; i < n; i ++) {
+				names[i] = lines.get(i)[0];
+				xs[i] = Double.parseDouble(lines.get(i)[1])*Univ.mi;
+				ys[i] = Double.parseDouble(lines.get(i)[2])*Univ.mi;
+				rs[i] = Double.parseDouble(lines.get(i)[3])*Univ.mi;
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("bad number in "+file, e);
+		}
+		return new Scenario(names, xs, ys, rs);
+	}
+	
+	
+	public List<Planet> build(double t, Battlefield field) {	// makes all of the obstacles, as of time t
+		final List<Planet> planets = new ArrayList<Planet>(names.length);
+		for (int i = 0; i < names.length; i ++)
+			planets.add(new Planet(xs[i], ys[i], rs[i], names[i], t, field));
+		return planets;
+	}
+	
+	
+	public int size() {
+		return names.length;
+	}
+	
+	
+	public long fingerprint() {	// a hash of every obstacle, so that two players can make sure they have the same map
+		long hash = names.length;
+		for (int i = 0; i < names.length; i ++) {
+			hash = 31*hash + names[i].hashCode();
+			hash = 31*hash + Double.doubleToLongBits(xs[i]);
+			hash = 31*hash + Double.doubleToLongBits(ys[i]);
+			hash = 31*hash + Double.doubleToLongBits(rs[i]);
+		}
+		return hash;
+	}
+
+}
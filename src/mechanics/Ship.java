@@ -21,8 +21,6 @@
  */
 package mechanics;
 
-import java.util.ArrayList;
-
 import mechanics.ship_classes.Battleship;
 import mechanics.ship_classes.Carrier;
 import mechanics.ship_classes.Radar;
@@ -38,6 +36,8 @@ import mechanics.ship_classes.Steamship;
  */
 public abstract class Ship extends Body {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final byte CARRIER = 0;		// ship class constants
 	public static final byte BATTLESHIP = 1;
 	public static final byte SCOUT  = 2;
@@ -102,8 +102,8 @@ public abstract class Ship extends Body {
 	protected byte id;		// an identifier for this particular ship
 	protected int visibilityBand;	// the frequency band it sees in
 	
-	protected ArrayList<double[]> health;	// health and energy matrices
-	protected ArrayList<double[]> energy;
+	protected Timeline health;	// health and energy over time
+	protected Timeline energy;
 	
 	protected double timeOfDeath;	// the time it stopped existing
 	
@@ -115,12 +115,8 @@ public abstract class Ship extends Body {
 		isBlue = blue;
 		visibilityBand = 0;
 		
-		double[] hInit = {t, MAX_H_VALUE};	// max health and energy at time of creation
-		double[] eInit = {t, MAX_E_VALUE};
-		health = new ArrayList<double[]>(1);
-		energy = new ArrayList<double[]>(1);
-		health.add(hInit);
-		energy.add(eInit);
+		health = new Timeline(t, MAX_H_VALUE, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);	// max health and energy at time of creation
+		energy = new Timeline(t, MAX_E_VALUE, RECHARGE_RATE, Double.NEGATIVE_INFINITY, MAX_E_VALUE);	// (energy recharges up to the max)
 		timeOfDeath = Double.POSITIVE_INFINITY;	// I'm gonna live forever!
 	}
 	
@@ -140,12 +136,38 @@ public abstract class Ship extends Body {
 	}
 	
 	
+	@Override
+	public double peakLuminosity(int band) {
+		if (isBlue)	return Double.POSITIVE_INFINITY;
+		else		return super.peakLuminosity(band);
+	}
+	
+	
+	@Override
+	public double peakLuminosity(int band, double ta, double tb) {
+		if (isBlue)	return Double.POSITIVE_INFINITY;
+		else		return super.peakLuminosity(band, ta, tb);
+	}
+	
+	
+	@Override
+	public int kind() {
+		return SHIP;
+	}
+	
+	
 	@Override
 	public boolean existsAt(double t) {	// unlike most things, ships existed before they were spawned
 		return t < timeOfDeath;
 	}
 	
 	
+	@Override
+	public double endTime() {	// ships can always be ordered back onto the map, so only death ends them
+		return timeOfDeath;
+	}
+	
+	
 	public void move(double x, double y, double t) {	// moves to the point x,y at a speed of c/10
 		move(x, y, t, MOVEMENT_SPEED, MOVEMENT_COST);
 	}
@@ -153,22 +175,18 @@ public abstract class Ship extends Body {
 	
 	public void move(double x, double y, double t, double v, double E) {	// moves to the point x,y at a speed of v
 		if (expend(E, t)) {
-			for (int i = pos.size()-1; i >= 0; i --) {	// first, clear any movement after this order
-				if (pos.get(i)[0] >= t)	pos.remove(i);
-				else					break;
-			}
+			pos.truncate(t);	// first, clear any movement after this order
 			final double x0 = xValAt(t);	// calculate the initial coordinates
 			final double y0 = yValAt(t);
 			final double delT = Math.hypot(x-x0, y-y0)/v;	// the duration of the trip
 			
-			double[] newPos = {t, x0, y0, (x-x0)/delT, (y-y0)/delT};	// add a segment for the motion
-			pos.add(newPos);
-			double[] newnewPos = {t+delT, x, y, 0, 0};	// and have it stop afterward
-			pos.add(newnewPos);
+			pos.append(t, x0, y0, (x-x0)/delT, (y-y0)/delT);	// add a segment for the motion
+			pos.append(t+delT, x, y, 0, 0);	// and have it stop afterward
+			invalidate();
 			
-			playSound("blast", t);			// then make it play the blast sound at the beginning and end
+			playSound(SoundQueue.BLAST, t);			// then make it play the blast sound at the beginning and end
 			clearSoundsAfter(t);
-			playSound("blast", t+delT);
+			playSound(SoundQueue.BLAST, t+delT);
 		}
 	}
 	
@@ -181,7 +199,7 @@ public abstract class Ship extends Body {
 								  yValAt(t) + spawnDist*Math.sin(theta),
 								  theta, t, space, LASER_ENERGY));
 			
-			playSound("pew", t);	// play the pew pew sound
+			playSound(SoundQueue.PEW, t);	// play the pew pew sound
 		}
 	}
 	
@@ -190,59 +208,100 @@ public abstract class Ship extends Body {
 	
 	
 	public double sees(Body object, double to) {	// calculates the time this sees the observer at
-		if (!this.existsAt(to) && !(this instanceof Carrier))	// dead ships can't see things
-			return Double.NaN;		// unless they are a Carrier
+		if (!canSee(to))
+			return Double.NaN;
+		
+		if (space.dist(this, object, to) > 2*visibilityRadius(object.peakLuminosity(visibilityBand)))
+			return Double.NaN;	// nothing outruns light, so anything that far away now was at least half that far when
+								// the light left it, which is too far to see no matter when exactly that was
 		
 		double ts = object.seenBy(this, to);	// call object's side of the method, which does the math
 		
-		final double r = space.dist(this, object, to, ts);
+		if (canSee(object, to, ts))
+			return ts;
+		else
+			return Double.NaN;
+	}
+	
+	
+	public double sees(LightConeIndex index, int k, double to) {	// the same, for the kth thing an index found
+		final double ts = index.timeOf(k);								// on this ship's light-cone at to
+		if (canSee(index.bodyOf(k), to, ts))
+			return ts;
+		else
+			return Double.NaN;
+	}
+	
+	
+	boolean canSee(double to) {	// whether this is around to see anything at time to
+		return this.existsAt(to) || this instanceof Carrier;	// dead ships can't see things, unless they are a Carrier
+	}
+	
+	
+	private boolean canSee(Body object, double to, double ts) {	// whether light leaving object at ts is bright enough
+		final double r = space.dist(this, object, to, ts);			// to see when it gets here at to
 		final double I = object.luminosityAt(visibilityBand, ts)/(4*Math.PI*r*r);	// calculate intensity
-		if (I < VISIBILITY)		// if the intensity is too low,
-			return Double.NaN;	// we can't see it
+		return !(I < VISIBILITY);	// if the intensity is too low, we can't see it
+	}
+	
+	
+	public int getVisibilityBand() {
+		return visibilityBand;
+	}
+	
+	
+	public double sees(double x0, double y0, double vx, double vy, double t0, double to) {	// the same thing, for a speck
+		if (!canSee(to))	// of debris that passed (x0, y0) at t0 and never turned
+			return Double.NaN;
+		
+		final double xo = xValAt(to), yo = yValAt(to);
+		final double range = visibilityRadius(DEFAULT_LUMINOSITY);	// (debris is never any brighter than the default)
+		if (Math.hypot(x0 + vx*(to-t0) - xo, y0 + vy*(to-t0) - yo) > 2*range)
+			return Double.NaN;
+		
+		final double ts = lightConeRoot(t0, x0, y0, vx, vy, xo, yo, to);
+		if (!(ts >= t0))
+			return Double.NaN;	// it hadn't been thrown off yet
+		if (Math.hypot(x0 + vx*(ts-t0) - xo, y0 + vy*(ts-t0) - yo) > range)
+			return Double.NaN;	// or it's too dim
 		else
 			return ts;
 	}
 	
 	
+	public static double visibilityRadius(double L) {	// how far away something this bright can be seen from
+		return Math.sqrt(L/(4*Math.PI*VISIBILITY));
+	}
+	
+	
 	public double hValAt(double t) {	// returns the health at time t
-		for (int i = health.size()-1; i >= 0; i --) {	// iterate through health to find the correct health value
-			final double[] timehealth = health.get(i);
-			if (timehealth[0] <= t) {	// they should be sorted chronologically
-				return timehealth[1];	// calculate health based on this
-			}
-		}
-		return health.get(0)[1];	// if it didn't find anything, just use the first one
+		return health.valueAt(t);
 	}
 	
 	
 	public void damaged(double amount, double t) {	// takes some out of your health
-		double[] newHVal = {t, hValAt(t)-amount};
-		health.add(newHVal);
-		playSound("clunk"+(int)(Math.random()*2), t);
-		if (newHVal[1] <= 0)
-			die(t);
+		health.shift(t, -amount);	// (hits can arrive out of order within a tick, so this takes it out of everything after, too)
+		
+		playSound((byte)(SoundQueue.CLUNK + (int)(nextRandom()*2)), t);
+		final double tz = health.firstTimeAtOrBelow(0, t);
+		if (tz < timeOfDeath)	// then die if that was enough to kill you
+			die(tz);
 	}
 	
 	
 	public double eValAt(double t) {	// returns the energy at time t
-		for (int i = energy.size()-1; i >= 0; i --) {	// iterate through energy to find the correct energy segment
-			final double[] timeenergy = energy.get(i);
-			if (timeenergy[0] <= t) {	// they should be sorted chronologically
-				return Math.min(MAX_E_VALUE, timeenergy[1] + RECHARGE_RATE*(t-timeenergy[0]));	// calculate energy based on this
-			}
-		}
-		return energy.get(0)[1];	// if it didn't find anything, just use the first one
+		return energy.valueAt(t);
 	}
 	
 	
 	public boolean expend(double amount, double t) {	// takes some out of your energy
-		double[] newEVal = {t, eValAt(t)-amount};
-		if (newEVal[1] >= 0) {
-			energy.add(newEVal);
+		final double newE = eValAt(t)-amount;
+		if (newE >= 0) {
+			energy.set(t, newE, RECHARGE_RATE);
 			return true;	// returns true if it successfully spent energy
 		}
 		else {
-			playSound("blip", t);
+			playSound(SoundQueue.BLIP, t);
 			return false;	// returns false if there was not enough energy
 		}
 	}
@@ -250,8 +309,17 @@ public abstract class Ship extends Body {
 	
 	protected void die(double t) {	// just DIE already!
 		clearSoundsAfter(t);
-		playSound("boom"+(int)(Math.random()*2.001), t);	// play explosion sound
+		playSound((byte)(SoundQueue.BOOM + (int)(nextRandom()*2.001)), t);	// play explosion sound
 		timeOfDeath = t;	// record death
+		invalidate();
+	}
+	
+	
+	@Override
+	public void compact(double t) {
+		super.compact(t);
+		health.compact(t);
+		energy.compact(t);
 	}
 	
 	
@@ -0,0 +1,51 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+/**
+ * What one observer found the last time it looked at one <code>Body</code>.
+ * The retarded time creeps forward a little every frame, so the motion segment
+ * it lands in is almost always the same one as last time, or the one after.
+ * Starting the search there instead of at the present makes each look O(1).
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Sightline {
+
+	final Body observer;	// the one doing the looking
+	int segment;			// the index of the motion segment the last answer was in
+	double start;			// the start time of that segment, to notice if the indices have shifted since
+	double time;			// the last answer
+	final Sightline next;	// the next observer looking at the same body
+	
+	
+	
+	Sightline(Body observer, Sightline next) {
+		this.observer = observer;
+		this.segment = -1;
+		this.start = Double.NaN;
+		this.time = Double.NaN;
+		this.next = next;
+	}
+
+}
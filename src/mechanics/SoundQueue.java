@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Every sound that any body in a <code>Battlefield</code> is going to make, in
+ * the order they happen. Sounds are identified by number rather than by name,
+ * and they come out of the queue all at once as soon as the player could have
+ * seen whatever made them, or dropped once they're old enough that nobody is
+ * ever going to see them. The queue gets rolled back with everything else, so
+ * after a rollback the ones that had already been heard have to be forgotten
+ * again before the next drain.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class SoundQueue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	public static final byte BEEP = 0;		// sound IDs
+	public static final byte BLAST = 1;
+	public static final byte BLIP = 2;
+	public static final byte BOOM = 3;		// (there are three of these)
+	public static final byte CLUNK = 6;		// (and two of these)
+	public static final byte PEW = 8;
+	public static final byte PING = 9;
+	public static final byte WOOSH = 10;
+	public static final String[] NAMES = {	// the file each sound ID goes with
+			"beep", "blast", "blip", "boom0", "boom1", "boom2", "clunk0", "clunk1", "pew", "ping", "woosh" };
+	
+	
+	private double[] times;	// when each sound happens
+	private byte[] ids;		// which sound it is
+	private Body[] owners;	// what makes it
+	private int size;
+	
+	
+	
+	public SoundQueue() {
+		times = new double[16];
+		ids = new byte[16];
+		owners = new Body[16];
+		size = 0;
+	}
+	
+	
+	
+	public void schedule(double t, byte id, Body owner) {	// adds a sound
+		if (size >= times.length) {
+			times = Arrays.copyOf(times, 2*size);
+			ids = Arrays.copyOf(ids, 2*size);
+			owners = Arrays.copyOf(owners, 2*size);
+		}
+		int i = size;
+		while (i > 0 && times[i-1] > t)	// sounds usually come in order, so look from the end
+			i --;
+		System.arraycopy(times, i, times, i+1, size-i);
+		System.arraycopy(ids, i, ids, i+1, size-i);
+		System.arraycopy(owners, i, owners, i+1, size-i);
+		times[i] = t;
+		ids[i] = id;
+		owners[i] = owner;
+		size ++;
+	}
+	
+	
+	public void clearAfter(Body owner, double t) {	// cancels all of owner's sounds after time t
+		int i = size;
+		while (i > 0 && times[i-1] > t)	// (only the ones after t need to be looked at)
+			i --;
+		int k = i;
+		for (; i < size; i ++) {
+			if (owners[i] != owner) {
+				times[k] = times[i];
+				ids[k] = ids[i];
+				owners[k] = owners[i];
+				k ++;
+			}
+		}
+		Arrays.fill(owners, k, size, null);
+		size = k;
+	}
+	
+	
+	public int drain(double t, Battlefield field, byte[] out) {	// takes every sound that can be heard at time t out of the queue and puts it in out
+		int n = 0;															// and returns how many there were
+		int k = 0;
+		int i = 0;
+		for (; i < size && times[i] <= t; i ++) {	// nothing after t could have been seen yet
+			if (times[i] + Battlefield.LOOKBACK < t)
+				continue;	// if nobody heard it by now, nobody's ever going to (and its owner may be long gone)
+			else if (n < out.length && times[i] <= field.observedTime(owners[i], t))
+				out[n++] = ids[i];
+			else {
+				times[k] = times[i];	// keep the ones that haven't been seen yet
+				ids[k] = ids[i];
+				owners[k] = owners[i];
+				k ++;
+			}
+		}
+		close(i, k);
+		return n;
+	}
+	
+	
+	public void forget(double t, Battlefield field) {	// drops every sound that could already be heard at time t
+		int k = 0;
+		int i = 0;
+		for (; i < size && times[i] <= t; i ++) {
+			if (!(times[i] <= field.observedTime(owners[i], t))) {
+				times[k] = times[i];	// keep the ones that couldn't
+				ids[k] = ids[i];
+				owners[k] = owners[i];
+				k ++;
+			}
+		}
+		close(i, k);
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	private void close(int i, int k) {	// moves everything from i on back to k, once the ones between have been taken out
+		System.arraycopy(times, i, times, k, size-i);
+		System.arraycopy(ids, i, ids, k, size-i);
+		System.arraycopy(owners, i, owners, k, size-i);
+		Arrays.fill(owners, k + size-i, size, null);
+		size = k + size-i;
+	}
+
+}
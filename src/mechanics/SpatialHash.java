@@ -0,0 +1,242 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid that finds which pairs of bodies are close enough that they
+ * might interact, so that <code>Battlefield</code> doesn't have to try them all.
+ * Within each cell, bodies are bucketed by kind, and only buckets whose kinds
+ * can interact with each other are ever crossed.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class SpatialHash {
+
+	public static final double CELL_SIZE = 64*Univ.pix;	// the width of each grid cell
+	public static final double GLOBAL_RADIUS = 16*CELL_SIZE;	// bodies bigger than this just get checked against everything
+	
+	private static final int CELL_BITS = 18;		// bits of each cell coordinate packed into an entry
+	private static final int KIND_BITS = 4;			// bits of body kind packed into an entry
+	private static final int INDEX_BITS = 24;		// bits of body index packed into an entry
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+	private static final long KIND_MASK = (1L << KIND_BITS) - 1;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	private static final int MAX_CELL = (1 << (CELL_BITS-1)) - 1;	// cell coordinates get clamped to this
+	
+	
+	private int[] partners;		// the interaction matrix: which kinds each kind must be checked against
+	
+	private double[] xs, ys, rs;	// the position and radius of every body that got added
+	private int[] kinds;			// the kind of every body that got added
+	private int size;				// the number of bodies that got added
+	private int[][] byKind;			// the indices of the bodies of each kind
+	private int[] kindCounts;
+	
+	private long[] entries;		// (cell, kind, index) keys for every cell each body touches
+	private int numEntries;
+	private int[] globals;		// bodies too big to bother putting in cells
+	private int numGlobals;
+	
+	private long[] pairs;		// the candidate pairs found by the last call to findPairs
+	private int numPairs;
+	
+	
+	
+	public SpatialHash() {
+		partners = new int[Body.NUM_KINDS];
+		xs = new double[16];
+		ys = new double[16];
+		rs = new double[16];
+		kinds = new int[16];
+		byKind = new int[Body.NUM_KINDS][4];
+		kindCounts = new int[Body.NUM_KINDS];
+		entries = new long[64];
+		globals = new int[4];
+		pairs = new long[64];
+		clear();
+	}
+	
+	
+	
+	public void clear() {	// forgets all bodies (but not the interaction matrix)
+		Arrays.fill(kindCounts, 0);
+		size = 0;
+		numEntries = 0;
+		numGlobals = 0;
+		numPairs = 0;
+	}
+	
+	
+	public void declare(int kind, int targets) {	// records that bodies of kind act on the kinds in targets (call before adding them)
+		partners[kind] |= targets;
+		for (int k = 0; k < Body.NUM_KINDS; k ++)
+			if ((targets & (1 << k)) != 0)
+				partners[k] |= 1 << kind;	// the matrix is symmetric, since both sides get to interact
+	}
+	
+	
+	public void add(int index, int kind, double x, double y, double r) {	// puts the body with list index index into the grid
+		if (index >= xs.length) {
+			final int newLength = Math.max(2*xs.length, index+1);
+			xs = Arrays.copyOf(xs, newLength);
+			ys = Arrays.copyOf(ys, newLength);
+			rs = Arrays.copyOf(rs, newLength);
+			kinds = Arrays.copyOf(kinds, newLength);
+		}
+		if (!(r >= 0))	r = 0;	// a body with no sensible radius can still be touched by others
+		xs[index] = x;
+		ys[index] = y;
+		rs[index] = r;
+		kinds[index] = kind;
+		size = Math.max(size, index+1);
+		
+		if (Double.isNaN(x) || Double.isNaN(y))	// bodies that are nowhere can't touch anything
+			return;
+		
+		if (kindCounts[kind] >= byKind[kind].length)
+			byKind[kind] = Arrays.copyOf(byKind[kind], 2*byKind[kind].length);
+		byKind[kind][kindCounts[kind]++] = index;
+		
+		if (partners[kind] == 0)	// nothing cares about this kind, so don't even bother filing it
+			return;
+		
+		if (r > GLOBAL_RADIUS || Double.isInfinite(x) || Double.isInfinite(y)) {
+			if (numGlobals >= globals.length)
+				globals = Arrays.copyOf(globals, 2*globals.length);
+			globals[numGlobals++] = index;
+			return;
+		}
+		
+		final int cx0 = cellFor(x-r), cx1 = cellFor(x+r);	// a point body covers a single cell,
+		final int cy0 = cellFor(y-r), cy1 = cellFor(y+r);	// and anything else covers its bounding box
+		for (int cx = cx0; cx <= cx1; cx ++) {
+			for (int cy = cy0; cy <= cy1; cy ++) {
+				if (numEntries >= entries.length)
+					entries = Arrays.copyOf(entries, 2*entries.length);
+				final long cell = (cx & CELL_MASK) << CELL_BITS | (cy & CELL_MASK);
+				entries[numEntries++] = ((cell << KIND_BITS | kind) << INDEX_BITS) | index;
+			}
+		}
+	}
+	
+	
+	public int findPairs() {	// finds every pair that might interact, and returns how many there are
+		numPairs = 0;
+		Arrays.sort(entries, 0, numEntries);	// group the entries by cell, then by kind
+		
+		int start = 0;
+		while (start < numEntries) {
+			int end = start+1;
+			while (end < numEntries && cellOf(entries[end]) == cellOf(entries[start]))
+				end ++;
+			
+			for (int a0 = start; a0 < end; ) {	// within each cell, go through each kind's bucket
+				final int ka = kindOf(entries[a0]);
+				int a1 = a0+1;
+				while (a1 < end && kindOf(entries[a1]) == ka)
+					a1 ++;
+				
+				for (int b0 = a0; b0 < end; ) {	// and cross it with every compatible bucket after it
+					final int kb = kindOf(entries[b0]);
+					int b1 = b0+1;
+					while (b1 < end && kindOf(entries[b1]) == kb)
+						b1 ++;
+					
+					if ((partners[ka] & (1 << kb)) != 0)
+						for (int a = a0; a < a1; a ++)
+							for (int b = (ka == kb) ? a+1 : b0; b < b1; b ++)
+								addPair(indexOf(entries[a]), indexOf(entries[b]));
+					b0 = b1;
+				}
+				a0 = a1;
+			}
+			start = end;
+		}
+		
+		for (int g = 0; g < numGlobals; g ++) {	// then pair up the global bodies with everything they care about
+			final int i = globals[g];
+			final int ki = kinds[i];
+			for (int k = 0; k < Body.NUM_KINDS; k ++)
+				if ((partners[ki] & (1 << k)) != 0)
+					for (int n = 0; n < kindCounts[k]; n ++)
+						if (byKind[k][n] != i)
+							addPair(i, byKind[k][n]);
+		}
+		
+		Arrays.sort(pairs, 0, numPairs);	// put them in the same order Battlefield would have tried them in
+		int unique = 0;
+		for (int p = 0; p < numPairs; p ++)		// and throw out duplicates
+			if (unique == 0 || pairs[p] != pairs[unique-1])
+				pairs[unique++] = pairs[p];
+		numPairs = unique;
+		return numPairs;
+	}
+	
+	
+	public int firstOf(int p) {	// the later (higher index) body of the pth pair
+		return size - 1 - (int) (pairs[p] >>> 32);
+	}
+	
+	
+	public int secondOf(int p) {	// the earlier (lower index) body of the pth pair
+		return (int) (pairs[p] & 0xFFFFFFFFL);
+	}
+	
+	
+	private void addPair(int a, int b) {	// records a pair if the bodies are actually close enough
+		final double r = rs[a] + rs[b];	// (a laser's sweep can carry it out of a cloud again, so the radii add up)
+		if (!(r > 0))	return;		// two points can't touch each other
+		if (!(Math.hypot(xs[a]-xs[b], ys[a]-ys[b]) <= r))
+			return;
+		
+		final int i = Math.max(a, b);
+		final int j = Math.min(a, b);
+		if (numPairs >= pairs.length)
+			pairs = Arrays.copyOf(pairs, 2*pairs.length);
+		pairs[numPairs++] = ((long) (size - 1 - i) << 32) | j;	// sorts by descending i, then ascending j
+	}
+	
+	
+	private static long cellOf(long entry) {
+		return entry >>> (KIND_BITS + INDEX_BITS);
+	}
+	
+	
+	private static int kindOf(long entry) {
+		return (int) ((entry >>> INDEX_BITS) & KIND_MASK);
+	}
+	
+	
+	private static int indexOf(long entry) {
+		return (int) (entry & INDEX_MASK);
+	}
+	
+	
+	private static int cellFor(double coord) {
+		final double c = Math.floor(coord/CELL_SIZE);
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, c));
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A grid of bodies that never move, like planets, built once when the map is
+ * set up. Moving bodies ask it what is near them instead of the static bodies
+ * going through the per-frame grid, so a map can have hundreds of obstacles
+ * without every frame paying for all of them.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class StaticIndex {
+
+	public static final double CELL_SIZE = SpatialHash.CELL_SIZE;	// the width of each grid cell
+	public static final double GLOBAL_RADIUS = SpatialHash.GLOBAL_RADIUS;	// bodies bigger than this are near everything
+	
+	private static final int CELL_BITS = 18;	// bits of each cell coordinate packed into an entry
+	private static final int INDEX_BITS = 24;	// bits of body index packed into an entry
+	private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+	private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+	private static final int MAX_CELL = (1 << (CELL_BITS-1)) - 1;	// cell coordinates get clamped to this
+	
+	
+	private final double[] xs, ys, rs;	// the position and radius of every body
+	private final int targets;			// the kinds of bodies any of them act on
+	private final long[] entries;		// (cell, index) keys for every cell each body touches, sorted
+	private final int[] globals;		// bodies too big to bother putting in cells
+	
+	private final int[] stamps;		// the last query that found each body, so none gets found twice
+	private int stamp;
+	private int[] hits;				// the bodies found by the last query
+	private int numHits;
+	
+	
+	
+	public StaticIndex(List<? extends Body> bodies, double t) {
+		final int n = bodies.size();
+		xs = new double[n];
+		ys = new double[n];
+		rs = new double[n];
+		int mask = 0;
+		long[] cells = new long[4*n];
+		int numEntries = 0;
+		int[] bigs = new int[n];
+		int numGlobals = 0;
+		for (int i = 0; i < n; i ++) {
+			final Body b = bodies.get(i);
+			xs[i] = b.xValAt(t);
+			ys[i] = b.yValAt(t);
+			rs[i] = Math.max(0, b.interactionRadius(t));
+			mask |= b.interactsWith();
+			
+			if (rs[i] > GLOBAL_RADIUS) {
+				bigs[numGlobals++] = i;
+				continue;
+			}
+			final int cx0 = cellFor(xs[i]-rs[i]), cx1 = cellFor(xs[i]+rs[i]);	// each one covers its bounding box
+			final int cy0 = cellFor(ys[i]-rs[i]), cy1 = cellFor(ys[i]+rs[i]);
+			for (int cx = cx0; cx <= cx1; cx ++) {
+				for (int cy = cy0; cy <= cy1; cy ++) {
+					if (numEntries >= cells.length)
+						cells = Arrays.copyOf(cells, 2*cells.length);
+					cells[numEntries++] = cellKey(cx, cy) << INDEX_BITS | i;
+				}
+			}
+		}
+		entries = Arrays.copyOf(cells, numEntries);
+		Arrays.sort(entries);
+		globals = Arrays.copyOf(bigs, numGlobals);
+		targets = mask;
+		
+		stamps = new int[n];
+		stamp = 0;
+		hits = new int[16];
+		numHits = 0;
+	}
+	
+	
+	
+	public int targets() {	// a bit mask of the kinds of bodies that might need to ask
+		return targets;
+	}
+	
+	
+	public int query(double x, double y, double r) {	// finds every body within reach of a circle, and returns how many
+		numHits = 0;
+		if (Double.isNaN(x) || Double.isNaN(y))
+			return 0;	// bodies that are nowhere can't touch anything
+		if (!(r >= 0))	r = 0;
+		stamp ++;
+		
+		if (r > GLOBAL_RADIUS) {	// big circles might as well just check everything
+			for (int i = 0; i < xs.length; i ++)
+				check(i, x, y, r);
+			return numHits;
+		}
+		
+		for (int i: globals)
+			check(i, x, y, r);
+		
+		final int cx0 = cellFor(x-r), cx1 = cellFor(x+r);
+		final int cy0 = cellFor(y-r), cy1 = cellFor(y+r);
+		for (int cx = cx0; cx <= cx1; cx ++) {
+			for (int cy = cy0; cy <= cy1; cy ++) {
+				final long cell = cellKey(cx, cy);
+				int e = Arrays.binarySearch(entries, cell << INDEX_BITS);	// find the first entry in this cell
+				if (e < 0)	e = -e-1;
+				for (; e < entries.length && entries[e] >>> INDEX_BITS == cell; e ++)
+					check((int) (entries[e] & INDEX_MASK), x, y, r);
+			}
+		}
+		return numHits;
+	}
+	
+	
+	public int get(int k) {	// the list index of the kth body the last query found
+		return hits[k];
+	}
+	
+	
+	private void check(int i, double x, double y, double r) {	// records a body if it's actually close enough
+		if (stamps[i] == stamp)
+			return;
+		stamps[i] = stamp;
+		if (!(Math.hypot(xs[i]-x, ys[i]-y) <= rs[i] + r))
+			return;
+		if (numHits >= hits.length)
+			hits = Arrays.copyOf(hits, 2*hits.length);
+		hits[numHits++] = i;
+	}
+	
+	
+	private static long cellKey(int cx, int cy) {
+		return (cx & CELL_MASK) << CELL_BITS | (cy & CELL_MASK);
+	}
+	
+	
+	private static int cellFor(double coord) {
+		final double c = Math.floor(coord/CELL_SIZE);
+		return (int) Math.max(-MAX_CELL, Math.min(MAX_CELL, c));
+	}
+
+}
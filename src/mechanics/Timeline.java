@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A quantity that changes over time, like health or energy, stored as
+ * segments that each start at some value and change at a constant rate from
+ * there. The value is always clamped to [min, max], so a battery can recharge
+ * up to its capacity and stop. Reading the latest value costs one comparison,
+ * and reading older values is a binary search.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Timeline implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private double[] ts;	// the start time of each segment
+	private double[] vs;	// the value at the start of each segment
+	private double[] rs;	// the rate of change during each segment
+	private int size;
+	private double kept;	// the earliest time the segments still cover, once compaction has forgotten the ones before
+	private final double min, max;	// the limits of the value
+	
+	
+	
+	public Timeline(double t0, double v0, double rate, double min, double max) {
+		ts = new double[4];
+		vs = new double[4];
+		rs = new double[4];
+		size = 0;
+		kept = Double.NEGATIVE_INFINITY;	// (before anything is forgotten, the first value reaches back forever)
+		this.min = min;
+		this.max = max;
+		set(t0, v0, rate);
+	}
+	
+	
+	
+	public double valueAt(double t) {	// the value at time t (before the first segment, the first value)
+		final int i = segmentFor(t);
+		if (i < 0)
+			return clamp(vs[0]);
+		return clamp(vs[i] + rs[i]*(t - ts[i]));
+	}
+	
+	
+	public double rateAt(double t) {
+		return rs[Math.max(0, segmentFor(t))];
+	}
+	
+	
+	public void set(double t, double value, double rate) {	// starts a new segment at t, leaving any later ones alone
+		if (size >= ts.length) {
+			ts = Arrays.copyOf(ts, 2*size);
+			vs = Arrays.copyOf(vs, 2*size);
+			rs = Arrays.copyOf(rs, 2*size);
+		}
+		int i = size;
+		while (i > 0 && ts[i-1] > t)	// things usually happen in order, so look from the end
+			i --;
+		System.arraycopy(ts, i, ts, i+1, size-i);
+		System.arraycopy(vs, i, vs, i+1, size-i);
+		System.arraycopy(rs, i, rs, i+1, size-i);
+		ts[i] = t;
+		vs[i] = value;
+		rs[i] = rate;
+		size ++;
+	}
+	
+	
+	public void shift(double t, double delta) {	// changes the value by delta at time t, and everything after it too
+		final int i = segmentFor(t);
+		set(t, valueAt(t) + delta, rs[Math.max(0, i)]);
+		for (int j = i+2; j < size; j ++)	// (the new segment is at i+1)
+			vs[j] += delta;
+	}
+	
+	
+	public double firstTimeAtOrBelow(double threshold, double t) {	// the first time at or after t that the value is at or below threshold,
+		if (valueAt(t) <= threshold)								// or NaN if it never is
+			return t;
+		for (int i = Math.max(0, segmentAt(t)); i < size; i ++) {
+			if (rs[i] < 0) {	// either it gets there on its way down,
+				final double tz = ts[i] + (threshold - vs[i])/rs[i];
+				if (tz >= t && (i+1 >= size || tz < ts[i+1]))
+					return tz;
+			}
+			if (i+1 < size && clamp(vs[i+1]) <= threshold)
+				return ts[i+1];	// or it jumps down at the start of the next segment
+		}
+		return Double.NaN;
+	}
+	
+	
+	public void truncate(double t) {	// deletes all segments that start after t (except the first)
+		while (size > 1 && ts[size-1] > t)
+			size --;
+	}
+	
+	
+	public void compact(double t) {	// forgets every segment that was over before t
+		final int k = segmentAt(t);
+		if (k <= 0)	return;
+		System.arraycopy(ts, k, ts, 0, size-k);
+		System.arraycopy(vs, k, vs, 0, size-k);
+		System.arraycopy(rs, k, rs, 0, size-k);
+		size -= k;
+		kept = ts[0];
+	}
+	
+	
+	public double lastStart() {	// the time the last segment starts
+		return ts[size-1];
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	private int segmentAt(double t) {	// the index of the last segment starting at or before t, or -1 if there is none
+		if (ts[size-1] <= t)
+			return size-1;	// usually it's the latest one
+		int lo = 0, hi = size-1;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (ts[mid] <= t)	lo = mid+1;
+			else				hi = mid;
+		}
+		return lo-1;
+	}
+	
+	
+	private int segmentFor(double t) {	// segmentAt, but refusing to guess at times compaction has forgotten
+		if (t < kept)
+			throw new IllegalStateException("the values before "+kept+" have been forgotten, so it can't say what it was at "+t);
+		return segmentAt(t);
+	}
+	
+	
+	private double clamp(double v) {
+		return Math.max(min, Math.min(max, v));
+	}
+
+}
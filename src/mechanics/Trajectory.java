@@ -0,0 +1,287 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The piecewise-linear path of a <code>Body</code> through space, stored as
+ * parallel primitive arrays of segments sorted by start time.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Trajectory implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+	
+	private double[] ts;	// the start time of each segment
+	private double[] xs;	// the x position at the start of each segment
+	private double[] ys;	// the y position at the start of each segment
+	private double[] vxs;	// the x velocity during each segment
+	private double[] vys;	// the y velocity during each segment
+	private int size;		// the number of segments
+	private double birth;	// the start time of the very first segment, even after it gets compacted away
+	private double kept;	// the earliest time the segments still cover, once compaction has forgotten the ones before
+	
+	private int cursor;		// the segment found by the last lookup, since lookups usually creep forward
+	
+	
+	
+	public Trajectory(double t0, double x0, double y0, double vx0, double vy0) {
+		ts = new double[2];
+		xs = new double[2];
+		ys = new double[2];
+		vxs = new double[2];
+		vys = new double[2];
+		size = 0;
+		cursor = 0;
+		birth = t0;
+		kept = Double.NEGATIVE_INFINITY;	// (before anything is forgotten, the first segment reaches back forever)
+		append(t0, x0, y0, vx0, vy0);
+	}
+	
+	
+	
+	public void append(double t, double x, double y, double vx, double vy) {	// adds a segment to the end
+		if (size >= ts.length) {
+			final int newLength = 2*ts.length;
+			ts = Arrays.copyOf(ts, newLength);
+			xs = Arrays.copyOf(xs, newLength);
+			ys = Arrays.copyOf(ys, newLength);
+			vxs = Arrays.copyOf(vxs, newLength);
+			vys = Arrays.copyOf(vys, newLength);
+		}
+		ts[size] = t;
+		xs[size] = x;
+		ys[size] = y;
+		vxs[size] = vx;
+		vys[size] = vy;
+		size ++;
+	}
+	
+	
+	public void truncate(double t) {	// deletes all segments that start at or after t (except the first)
+		while (size > 1 && ts[size-1] >= t)
+			size --;
+	}
+	
+	
+	public void compact(double t) {	// forgets every segment that was over before t
+		final int k = segmentAt(t);
+		if (k <= 0)	return;
+		System.arraycopy(ts, k, ts, 0, size-k);
+		System.arraycopy(xs, k, xs, 0, size-k);
+		System.arraycopy(ys, k, ys, 0, size-k);
+		System.arraycopy(vxs, k, vxs, 0, size-k);
+		System.arraycopy(vys, k, vys, 0, size-k);
+		size -= k;
+		cursor = Math.max(0, cursor-k);
+		kept = ts[0];
+	}
+	
+	
+	public double birthTime() {	// the time this trajectory began
+		return birth;
+	}
+	
+	
+	public double keptFrom() {	// the earliest time this can still answer for
+		return kept;
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	public int segmentAt(double t) {	// the index of the last segment starting at or before t, or -1 if there is none
+		final int c = cursor;	// try the last segment we found, and the one after it, before searching
+		if (c < size && ts[c] <= t) {
+			if (c+1 >= size || ts[c+1] > t)
+				return c;
+			if (c+2 >= size || ts[c+2] > t) {
+				cursor = c+1;
+				return c+1;
+			}
+		}
+		
+		int lo = 0, hi = size;		// binary search for the first segment that starts after t
+		while (lo < hi) {
+			final int mid = (lo+hi) >>> 1;
+			if (ts[mid] <= t)	lo = mid+1;
+			else				hi = mid;
+		}
+		if (lo > 0)
+			cursor = lo-1;
+		return lo-1;
+	}
+	
+	
+	private int segmentFor(double t) {	// segmentAt, but refusing to guess at times compaction has forgotten
+		if (t < kept)
+			throw new IllegalStateException("the path before "+kept+" has been forgotten, so it can't say where it was at "+t);
+		return segmentAt(t);
+	}
+	
+	
+	private double nextStart(int i) {	// the time segment i ends
+		if (i+1 < size)	return ts[i+1];
+		else			return Double.POSITIVE_INFINITY;
+	}
+	
+	
+	public double startTime(int i) {	// accessors for the raw segments
+		return ts[i];
+	}
+	
+	
+	public double startX(int i) {
+		return xs[i];
+	}
+	
+	
+	public double startY(int i) {
+		return ys[i];
+	}
+	
+	
+	public double vx(int i) {
+		return vxs[i];
+	}
+	
+	
+	public double vy(int i) {
+		return vys[i];
+	}
+	
+	
+	public double xValAt(double t) {	// the x position at time t
+		final int i = segmentFor(t);
+		if (i < 0)	return xs[0];	// before the first segment, just use the initial position
+		return xs[i] + vxs[i]*(t-ts[i]);
+	}
+	
+	
+	public double yValAt(double t) {	// the y position at time t
+		final int i = segmentFor(t);
+		if (i < 0)	return ys[0];
+		return ys[i] + vys[i]*(t-ts[i]);
+	}
+	
+	
+	public double vxValAt(double t) {	// the x velocity at time t
+		final int i = segmentFor(t);
+		if (i < 0)	return 0;		// before the first segment, just assume motionless
+		return vxs[i];
+	}
+	
+	
+	public double vyValAt(double t) {	// the y velocity at time t
+		final int i = segmentFor(t);
+		if (i < 0)	return 0;
+		return vys[i];
+	}
+	
+	
+	public void stateAt(double t, double[] out) {	// puts {x, y, vx, vy} at time t into out
+		final int i = segmentFor(t);
+		if (i < 0) {
+			out[0] = xs[0];
+			out[1] = ys[0];
+			out[2] = 0;
+			out[3] = 0;
+		}
+		else {
+			out[0] = xs[i] + vxs[i]*(t-ts[i]);
+			out[1] = ys[i] + vys[i]*(t-ts[i]);
+			out[2] = vxs[i];
+			out[3] = vys[i];
+		}
+	}
+	
+	
+	public double contactTime(Trajectory that, double r, double ta, double tb) {	// the first time in [ta, tb] these paths come within r
+		return entryTime(that, r, 0, ta, tb, true);
+	}
+	
+	
+	public double entryTime(Trajectory that, double r0, double rdot, double ta, double tb, boolean countStart) {	// the first time in
+		int i = this.segmentFor(ta);			// [ta, tb] that comes into a circle around this whose radius is r0 at ta and grows at rdot
+		int j = that.segmentFor(ta);			// (if countStart is false, being inside at ta doesn't count; it has to come back in)
+		double t0 = ta;
+		while (true) {
+			final double t1 = Math.min(tb, Math.min(this.nextStart(i), that.nextStart(j)));	// the end of this piece, where neither path turns
+			
+			final double vx1 = (i < 0) ? 0 : this.vxs[i];		// find the relative position and velocity at the start of the piece
+			final double vy1 = (i < 0) ? 0 : this.vys[i];
+			final double vx2 = (j < 0) ? 0 : that.vxs[j];
+			final double vy2 = (j < 0) ? 0 : that.vys[j];
+			final double dx = ((i < 0) ? this.xs[0] : this.xs[i] + vx1*(t0-this.ts[i])) -
+							  ((j < 0) ? that.xs[0] : that.xs[j] + vx2*(t0-that.ts[j]));
+			final double dy = ((i < 0) ? this.ys[0] : this.ys[i] + vy1*(t0-this.ts[i])) -
+							  ((j < 0) ? that.ys[0] : that.ys[j] + vy2*(t0-that.ts[j]));
+			final double dvx = vx1 - vx2;
+			final double dvy = vy1 - vy2;
+			final double r = r0 + rdot*(t0-ta);
+			
+			final double a = dvx*dvx + dvy*dvy - rdot*rdot;	// the squared distance minus the squared radius is a*u^2 + 2*b*u + c
+			final double b = dx*dvx + dy*dvy - r*rdot;
+			final double c = dx*dx + dy*dy - r*r;
+			if (c < 0 && countStart && t0 == ta)
+				return t0;	// they were already touching at the start
+			
+			double u = Double.NaN;	// the time into the piece at which it crosses from outside to inside
+			if (a == 0) {
+				if (b < 0)
+					u = -c/(2*b);
+			}
+			else {
+				final double disc = b*b - a*c;
+				if (disc >= 0)	// if a > 0, inside is between the roots and it enters at the first; if a < 0, inside is
+					u = (-b - Math.sqrt(disc))/a;	// outside the roots and it enters at the second; either way, it's this one
+			}
+			if (u >= 0 && t0+u <= t1 && (u > 0 || countStart || t0 > ta))
+				return t0+u;
+			
+			if (!(t1 < tb))
+				return Double.NaN;	// they never touched
+			t0 = t1;
+			while (i+1 < this.size && this.ts[i+1] <= t0)	i ++;	// move on to the next piece
+			while (j+1 < that.size && that.ts[j+1] <= t0)	j ++;
+		}
+	}
+	
+	
+	public double distanceTo(Trajectory that, double tThis, double tThat) {	// the distance between two paths at two times
+		final int i = this.segmentFor(tThis);
+		final int j = that.segmentFor(tThat);
+		final double x1 = (i < 0) ? this.xs[0] : this.xs[i] + this.vxs[i]*(tThis-this.ts[i]);
+		final double y1 = (i < 0) ? this.ys[0] : this.ys[i] + this.vys[i]*(tThis-this.ts[i]);
+		final double x2 = (j < 0) ? that.xs[0] : that.xs[j] + that.vxs[j]*(tThat-that.ts[j]);
+		final double y2 = (j < 0) ? that.ys[0] : that.ys[j] + that.vys[j]*(tThat-that.ts[j]);
+		return Math.hypot(x1-x2, y1-y2);
+	}
+
+}
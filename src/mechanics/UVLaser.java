@@ -30,6 +30,8 @@ package mechanics;
  */
 public class UVLaser extends Laser {
 
+	private static final long serialVersionUID = 1L;
+	
 	public UVLaser(double x0, double y0, double tht, double time, Battlefield space) {
 		super(x0, y0, tht, time, space);
 	}
@@ -41,6 +43,12 @@ public class UVLaser extends Laser {
 	
 	
 	
+	@Override
+	public int kind() {
+		return UV_LASER;
+	}
+	
+	
 	@Override
 	public String spriteName() {
 		return "laserUV";
@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Keeps track of which bodies each expanding front (that is, each
+ * <code>Ping</code> and <code>Order</code>) is about to sweep over. A front is
+ * a circle around a fixed point that grows at the speed of light, and nothing
+ * else goes that fast, so every body crosses it at most once. That crossing
+ * can be solved for ahead of time, so each front keeps its bodies in a queue
+ * sorted by how far out it meets them, and each update only has to pop the
+ * ones in the ring it grew through since the last one. A prediction only gets
+ * redone when its body changes course.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class Wavefronts {
+
+	private List<Body> bodies;				// every body there is (shared with the Battlefield)
+	private ArrayList<Front> fronts;		// the fronts that are still sweeping across the map
+	private ArrayList<Body> pending;		// bodies that are new or have changed course since they were last predicted
+	private double now;						// the time of the last update
+	
+	private Body[] hitFronts, hitBodies;	// the crossings found by the last call to findCrossings
+	private int numHits;
+	
+	
+	
+	public Wavefronts(List<Body> bodyList, double t) {
+		bodies = bodyList;
+		fronts = new ArrayList<Front>();
+		pending = new ArrayList<Body>(bodies);	// everything there already gets predicted at the first update
+		now = t;
+		hitFronts = new Body[16];
+		hitBodies = new Body[16];
+		numHits = 0;
+	}
+	
+	
+	
+	public static boolean isFront(Body b) {	// whether this body should be handled here rather than by the grid
+		return b.contactGrowth() > 0;
+	}
+	
+	
+	public void add(Body b) {	// starts keeping track of a newly spawned body
+		pending.add(b);
+	}
+	
+	
+	public void changed(Body b) {	// hears that b has changed course, so its old predictions are no good
+		pending.add(b);
+	}
+	
+	
+	public int findCrossings(double t) {	// finds every front-body pair whose contact began since the last update,
+		final Set<Body> fresh = Collections.newSetFromMap(new IdentityHashMap<Body, Boolean>());	// and returns how many
+		fresh.addAll(pending);	// there are
+		
+		for (Body b: pending) {	// start any new fronts off with everything that is not about to be predicted anyway
+			if (isFront(b) && findFront(b) == null) {
+				final Front f = new Front(b);
+				for (Body other: bodies)
+					if (!fresh.contains(other))
+						predict(f, other);
+				fronts.add(f);
+			}
+		}
+		for (Body b: pending) {	// then predict everything that is new or different against every front
+			if (fresh.remove(b)) {	// (once each, even if it showed up more than once)
+				for (Front f: fronts)
+					predict(f, b);
+			}
+		}
+		pending.clear();
+		
+		now = Math.max(now, t);
+		numHits = 0;
+		for (int i = fronts.size()-1; i >= 0; i --)	// forget about fronts that are done
+			if (fronts.get(i).body.endTime() < now)
+				fronts.remove(i);
+		for (Front f: fronts) {
+			while (!f.queue.isEmpty() && f.queue.peek().time <= now) {	// pop everything that the front has reached
+				final Crossing c = f.queue.poll();
+				if (c.body.version() != c.version)
+					continue;	// skip predictions that have since been redone
+				if (numHits >= hitFronts.length) {
+					final Body[] newFronts = new Body[2*hitFronts.length];
+					final Body[] newBodies = new Body[2*hitBodies.length];
+					System.arraycopy(hitFronts, 0, newFronts, 0, numHits);
+					System.arraycopy(hitBodies, 0, newBodies, 0, numHits);
+					hitFronts = newFronts;
+					hitBodies = newBodies;
+				}
+				hitFronts[numHits] = f.body;
+				hitBodies[numHits] = c.body;
+				numHits ++;
+			}
+		}
+		return numHits;
+	}
+	
+	
+	public Body frontOf(int p) {	// the front of the pth crossing
+		return hitFronts[p];
+	}
+	
+	
+	public Body bodyOf(int p) {	// the body it crossed
+		return hitBodies[p];
+	}
+	
+	
+	private Front findFront(Body b) {
+		for (Front f: fronts)
+			if (f.body == b)
+				return f;
+		return null;
+	}
+	
+	
+	private void predict(Front f, Body b) {	// queues up the time front f first reaches b, if it ever does
+		final Body front = f.body;
+		if (b == front)
+			return;
+		final boolean aActs = (front.interactsWith() & (1 << b.kind())) != 0;
+		final boolean bActs = (b.interactsWith() & (1 << front.kind())) != 0;
+		if (!aActs && !bActs)
+			return;		// some pairs never do anything
+		
+		final double start = Math.max(now, Math.max(front.birthTime(), b.birthTime()));
+		final double end = Math.min(front.endTime(), b.endTime());
+		if (end < start)
+			return;		// and some pairs are already over
+		
+		final double te = front.pos.entryTime(b.pos, front.contactRadius(start), front.contactGrowth(), start, end, true);
+		if (!Double.isNaN(te))	// (if it's already inside, that counts, and the front decides whether it cares)
+			f.queue.add(new Crossing(te, b));
+	}
+	
+	
+	
+	private static class Front {	// one expanding front and the bodies it has yet to reach
+		
+		private final Body body;
+		private final PriorityQueue<Crossing> queue;
+		
+		
+		private Front(Body body) {
+			this.body = body;
+			this.queue = new PriorityQueue<Crossing>();
+		}
+	}
+	
+	
+	private static class Crossing implements Comparable<Crossing> {	// a predicted first contact between a front and a body
+		
+		private final double time;
+		private final Body body;
+		private final int version;	// the version of the body this prediction was based on
+		
+		
+		private Crossing(double t, Body b) {
+			this.time = t;
+			this.body = b;
+			this.version = b.version();
+		}
+		
+		
+		@Override
+		public int compareTo(Crossing that) {
+			return Double.compare(this.time, that.time);
+		}
+	}
+
+}
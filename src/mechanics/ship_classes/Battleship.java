@@ -24,6 +24,7 @@ package mechanics.ship_classes;
 import mechanics.Battlefield;
 import mechanics.Laser;
 import mechanics.Ship;
+import mechanics.SoundQueue;
 import mechanics.UVLaser;
 import mechanics.Univ;
 
@@ -36,6 +37,8 @@ import mechanics.Univ;
  */
 public class Battleship extends Ship {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double SPECIAL_ENERGY = 1.5*Univ.MJ;
 	
 	
@@ -63,7 +66,7 @@ public class Battleship extends Ship {
 									yValAt(t) + spawnDist*Math.sin(theta),
 									theta, t, space, nrg));
 			
-			playSound("pew", t);	// play the pew pew sound
+			playSound(SoundQueue.PEW, t);	// play the pew pew sound
 		}
 	}
 
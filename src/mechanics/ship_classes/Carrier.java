@@ -35,6 +35,8 @@ import network.Protocol;
  */
 public class Carrier extends Ship {
 
+	private static final long serialVersionUID = 1L;
+	
 	public Carrier(double newX, double newY, double time, byte pin, boolean blue, Battlefield space) {
 		super(newX, newY, time, pin, blue, space);
 	}
@@ -54,7 +56,7 @@ public class Carrier extends Ship {
 	@Override
 	protected void die(double t) {	// a carrier death is no ordinary death
 		super.die(t);
-		space.receive(Protocol.denoteVictory(0));	// it signals the end of the game
+		space.announceVictory((byte) 0);	// it signals the end of the game
 	}
 	
 	
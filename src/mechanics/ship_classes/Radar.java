@@ -24,6 +24,7 @@ package mechanics.ship_classes;
 import mechanics.Battlefield;
 import mechanics.Ping;
 import mechanics.Ship;
+import mechanics.SoundQueue;
 import mechanics.Univ;
 
 /**
@@ -35,6 +36,8 @@ import mechanics.Univ;
  */
 public class Radar extends Ship {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double RADAR_FLUX = Math.pow(10, 11)*Univ.MW*Univ.km*Univ.km;	// how strong it is
 	public static final double PING_DURATION = 10*Univ.s;
 	
@@ -62,7 +65,7 @@ public class Radar extends Ship {
 				this.illuminate(Double.POSITIVE_INFINITY, PING_DURATION, 0, t);
 				this.illuminate(Double.POSITIVE_INFINITY, PING_DURATION, 1, t);
 			}
-			playSound("ping", t);
+			playSound(SoundQueue.PING, t);
 		}
 	}
 	
@@ -33,6 +33,8 @@ import mechanics.Univ;
  */
 public class Scout extends Ship {
 
+	private static final long serialVersionUID = 1L;
+	
 	public static final double SPECIAL_SPEED = Univ.c/4;
 	public static final double SPECIAL_COST = 1*Univ.MJ;
 	
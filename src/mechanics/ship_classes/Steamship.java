@@ -24,6 +24,7 @@ package mechanics.ship_classes;
 import mechanics.Battlefield;
 import mechanics.GasCloud;
 import mechanics.Ship;
+import mechanics.SoundQueue;
 import mechanics.Univ;
 
 /**
@@ -35,6 +36,8 @@ import mechanics.Univ;
  */
 public class Steamship extends Ship {
 
+	private static final long serialVersionUID = 1L;
+	
 	public Steamship(double newX, double newY, double time, byte pin, boolean blue, Battlefield space) {
 		super(newX, newY, time, pin, blue, space);
 	}
@@ -51,7 +54,7 @@ public class Steamship extends Ship {
 	public void special(double x, double y, double t) {
 		if (expend(1.5*Univ.MJ, t)) {
 			space.spawn(new GasCloud(xValAt(t), yValAt(t), vxValAt(t), vyValAt(t), t, space));
-			playSound("woosh",t);
+			playSound(SoundQueue.WOOSH, t);
 		}
 	}
 
@@ -23,13 +23,16 @@ package network;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.security.SecureRandom;
 
-import interaction.Menu;
+import mechanics.EventSink;
+import mechanics.Scenario;
 
 /**
  * This class exists for the sole purpose of establishing a connection on a port
@@ -40,24 +43,25 @@ import interaction.Menu;
 public class Connection implements Runnable {
 
 	public static final int PORT_NUM = 62832;
+	public static final File SCENARIO_FILE = new File("assets/other/scenario.txt");	// the map, which both players must agree on
 	
 	
 	
-	public static Thread makeDummyConnection(Menu m) {	// for testing purposes only!
+	public static Thread makeDummyConnection(ConnectionListener m) {	// for testing purposes only!
 		Thread t = new Thread(new Connection(m));	// this Connection is non-functional
 		t.start();
 		return t;
 	}
 	
 	
-	public static Thread hostConnection(Menu m) {	// opens a Connection as a client
+	public static Thread hostConnection(ConnectionListener m) {	// opens a Connection as a client
 		Thread t = new Thread(new Connection(PORT_NUM, m));
 		t.start();
 		return t;
 	}
 	
 	
-	public static Thread joinConnection(Menu m, String name) {	// opens a Connection as a host
+	public static Thread joinConnection(ConnectionListener m, String name) {	// opens a Connection as a host
 		Thread t = new Thread(new Connection(name, PORT_NUM, m));
 		t.start();
 		return t;
@@ -78,27 +82,30 @@ public class Connection implements Runnable {
 	protected DataOutputStream out;
 	protected DataInputStream in;
 	protected double offset;
+	protected long seed;	// the seed for the game's random numbers
+	protected Scenario map;	// the map, which both sides have checked is the same
 	
 	protected ServerSocket ss;
 	
-	protected Menu menu;	// the class to alert when the thread finishes
+	protected ConnectionListener menu;	// the class to alert when the thread finishes
 	
 	
 	
-	private Connection(Menu m) {
+	private Connection(ConnectionListener m) {
 		menu = m;
 		type = DUMMY;
+		seed = new SecureRandom().nextLong();
 	}
 	
 	
-	private Connection(int portNum, Menu m) {
+	private Connection(int portNum, ConnectionListener m) {
 		port = portNum;
 		menu = m;
 		type = HOST;
 	}
 	
 	
-	private Connection(String hostname, int portNum, Menu m) {
+	private Connection(String hostname, int portNum, ConnectionListener m) {
 		name = hostname;
 		port = portNum;
 		menu = m;
@@ -109,7 +116,9 @@ public class Connection implements Runnable {
 	
 	@Override
 	public void run() {	// find a connection
+		map = loadScenario();
 		if (type != DUMMY) {
+			boolean agreed = false;	// whether the other player has the same map as us
 			try {
 				if (type == HOST) {							// if you are the host
 					ss = new ServerSocket(port);			// open a server socket
@@ -141,15 +150,30 @@ public class Connection implements Runnable {
 					long middle = in.readLong();
 					long end = System.currentTimeMillis();
 					offset = start/2.0 + end/2.0 - middle;
+					seed = new SecureRandom().nextLong();	// then pick the seed
+					out.writeLong(seed);
+					out.writeLong(map.fingerprint());	// and make sure we're on the same map
+					agreed = in.readLong() == map.fingerprint();
 				}
 				else if (type == CLIENT) {
 					in.readLong();
 					out.writeLong(System.currentTimeMillis());
 					offset = 0;
+					seed = in.readLong();	// and take the host's seed
+					agreed = in.readLong() == map.fingerprint();	// and make sure we're on the same map
+					out.writeLong(map.fingerprint());
 				}
 			} catch (IOException e) {	// will only trip if someone tries to host on this computer twice
 				return;
 			}
+			
+			if (!agreed) {	// if the scenarios are different, the games would be too, so don't even start
+				System.err.println("ERROR: The other player's scenario.txt doesn't match ours.");
+				close();
+				menu.mapMismatch();
+				menu = null;
+				return;
+			}
 		}
 		
 		menu.queueGame(this);	// tell the menu to start the game
@@ -157,6 +181,16 @@ public class Connection implements Runnable {
 	}
 	
 	
+	private static Scenario loadScenario() {	// reads the map, or falls back on the original one
+		try {
+			return Scenario.load(SCENARIO_FILE);
+		} catch (IOException e) {
+			System.err.println("ERROR: Couldn't read scenario.txt ("+e.getMessage()+"), so it's Jupiter again.");
+			return Scenario.JUPITER;
+		}
+	}
+	
+	
 	public boolean running() {
 		return type == DUMMY || in == null;
 	}
@@ -174,6 +208,12 @@ public class Connection implements Runnable {
 	}
 	
 	
+	public EventSink getSink() {
+		if (type == DUMMY)	return null;
+		return new StreamSink(out);
+	}
+	
+	
 	public DataInputStream getInput() {
 		if (type == DUMMY)	return null;
 		return in;
@@ -186,6 +226,16 @@ public class Connection implements Runnable {
 	}
 	
 	
+	public long getSeed() {
+		return seed;
+	}
+	
+	
+	public Scenario getScenario() {
+		return map;
+	}
+	
+	
 	public boolean isHost() {
 		return type == HOST;
 	}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Arrays;
+
+import network.Protocol;
+
+/**
+ * A quick check that a <code>Ship</code>'s history stays bounded over a long
+ * game, run from the command line since there's no test framework here. It
+ * plays ten minutes of a headless <code>Battlefield</code> on a manual clock,
+ * moving, lighting up, damaging, and draining one ship twice a second, and
+ * makes sure its <code>Trajectory</code>, <code>Timeline</code>s, and
+ * <code>LightCurve</code>s never hold much more than a lookback's worth of
+ * changes. Every time they get compacted, it also looks the ship up again at
+ * every time it sampled within the lookback, and makes sure the answers are
+ * exactly what they were before, and that asking about anything older than
+ * what was kept fails instead. It exits with a nonzero status if any of them
+ * keeps growing, forgets too much, or answers for what it forgot.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class HistoryCheck {
+
+	public static final double DURATION = 10*Univ.min;	// how long to play
+	public static final double TICK = 16*Univ.ms;	// how long each update is
+	public static final int PERIOD = 30;	// how many updates between changes to the ship
+	
+	
+	
+	public static void main(String[] args) {
+		
+		final ManualClock clock = new ManualClock(0);
+		final Battlefield game = new Battlefield(null, 0, true, 1L, clock);
+		game.receive(Protocol.writePlacement((byte)0, Ship.CARRIER, -240, 0), true);
+		game.tick(TICK);
+		final Ship s = game.getShip((byte)0);
+		
+		final int changes = (int)((Battlefield.LOOKBACK + Battlefield.COMPACTION_INTERVAL)/(PERIOD*TICK));	// the most that can
+		final int bound = 4*changes + 10;	// be remembered at once, with a few entries per change
+		int largest = 0;
+		int compactions = 0;
+		int lookups = 0;
+		double kept = s.pos.keptFrom();
+		
+		double[][] samples = new double[64][];	// what the ship looked like at various times, to look up again later
+		int first = 0, numSamples = 0;
+		for (int k = 1; k*TICK <= DURATION; k ++) {
+			final double t = clock.now();
+			if (k%PERIOD == 0) {	// every so often, give the ship something new to remember
+				s.move(-240+100*Math.cos(k), 100*Math.sin(k), t);
+				s.illuminate(1e3, 500, 0, t);
+				s.damaged(1e-9, t);
+				s.expend(1e-9, t);
+			}
+			game.tick(TICK);
+			
+			check(s.existsAt(clock.now()), "the ship is still alive at "+clock.now());
+			check(s.pos.size() <= bound, "the trajectory has "+s.pos.size()+" segments at "+clock.now());
+			check(s.health.size() <= bound, "the health has "+s.health.size()+" changes at "+clock.now());
+			check(s.energy.size() <= bound, "the energy has "+s.energy.size()+" changes at "+clock.now());
+			for (int i = 0; i < Body.NUM_BANDS; i ++)
+				check(s.lum[i].size() <= bound, "band "+i+" has "+s.lum[i].size()+" spikes at "+clock.now());
+			largest = Math.max(largest, Math.max(Math.max(s.pos.size(), s.health.size()),
+					Math.max(s.energy.size(), s.lum[0].size())));
+			
+			if (numSamples+2 > samples.length)
+				samples = Arrays.copyOf(samples, 2*samples.length);
+			samples[numSamples++] = sample(s, clock.now() - 2*TICK/3);	// remember a couple of times from this update
+			samples[numSamples++] = sample(s, clock.now() - TICK/3);	// (but not now, which the next update can still change)
+			
+			if (s.pos.keptFrom() != kept) {	// and whenever it gets compacted, look them all up again
+				kept = s.pos.keptFrom();
+				compactions ++;
+				while (samples[first][0] < clock.now() - Battlefield.LOOKBACK)
+					first ++;	// (anything older than the lookback is fair game)
+				for (int i = first; i < numSamples; i ++) {
+					check(Arrays.equals(sample(s, samples[i][0]), samples[i]),
+							"the ship at "+samples[i][0]+" changed after compacting at "+clock.now());
+					lookups ++;
+				}
+				try {
+					s.xValAt(kept - TICK);
+					check(false, "the trajectory still answered for "+(kept - TICK)+" after forgetting it");
+				} catch (IllegalStateException e) {}	// that's what should happen
+			}
+		}
+		check(compactions > 0, "nothing was ever compacted");
+		
+		System.out.println("History is fine (at most "+largest+" entries, where "+bound+" are allowed, and "+lookups+
+				" lookups over "+compactions+" compactions all came out the same).");
+		
+	}
+	
+	
+	private static double[] sample(Ship s, double t) {	// everything the ship remembers about time t
+		return new double[] {t, s.xValAt(t), s.yValAt(t), s.hValAt(t), s.eValAt(t), s.lum[0].valueAt(t)};
+	}
+	
+	
+	private static void check(boolean condition, String description) {
+		if (!condition) {
+			System.err.println("History check failed: "+description);
+			System.exit(1);
+		}
+	}
+
+}
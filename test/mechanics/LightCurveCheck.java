@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2016 Kunimune
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package mechanics;
+
+import java.util.Random;
+
+/**
+ * A quick check of <code>LightCurve</code> against brute force, run from the
+ * command line since there's no test framework here. It adds a mix of finite
+ * spikes and infinite ones (like the ones a radar ping makes) and makes sure
+ * the totals and the peaks come out right before, during, and after each one,
+ * and after evicting. It exits with a nonzero status if anything disagrees.
+ * 
+ * @author	jkunimune
+ * @version	1.0
+ */
+public class LightCurveCheck {
+
+	public static void main(String[] args) {
+		
+		LightCurve curve = new LightCurve();	// an infinite spike followed by a finite one
+		curve.add(1000, Double.POSITIVE_INFINITY, 500);
+		curve.add(1200, 10, 1000);
+		check(curve.valueAt(900) == 0, "nothing before either spike");
+		check(curve.valueAt(1100) == Double.POSITIVE_INFINITY, "infinite during the ping");
+		check(curve.valueAt(1300) == Double.POSITIVE_INFINITY, "still infinite while both are active");
+		check(close(curve.valueAt(1700), 5), "finite once the ping is over, not "+curve.valueAt(1700));
+		check(curve.valueAt(2300) == 0, "nothing after both spikes");
+		check(curve.peak() == Double.POSITIVE_INFINITY, "the overall peak includes the ping");
+		check(curve.peak(1100, 1150) == Double.POSITIVE_INFINITY, "the peak during the ping");
+		check(close(curve.peak(1600, 1800), 10), "the peak after the ping, not "+curve.peak(1600, 1800));
+		
+		curve.evict(1600);	// forgetting the ping should leave the finite spike alone
+		check(curve.size() == 1, "only the finite spike survives eviction");
+		check(close(curve.valueAt(1700), 5), "the same value after eviction, not "+curve.valueAt(1700));
+		check(curve.peak() == 10, "a finite peak after eviction");
+		
+		Random rng = new Random(0);	// then a lot of random ones, against brute force
+		LightCurve random = new LightCurve();
+		double[][] spikes = new double[400][];
+		for (int k = 0; k < spikes.length; k ++) {
+			final double t0 = 100*k + 200*rng.nextDouble();
+			final double a = (rng.nextInt(10) == 0) ? Double.POSITIVE_INFINITY : 100*rng.nextDouble();
+			final double d = 50 + 2000*rng.nextDouble();
+			spikes[k] = new double[] {t0, a, d};
+			random.add(t0, a, d);
+		}
+		for (int k = 0; k < 4000; k ++) {
+			final double t = 41000*rng.nextDouble();
+			double expected = 0;
+			for (double[] s: spikes)
+				if (s[0] <= t && t < s[0]+s[2])
+					expected += (s[1] == Double.POSITIVE_INFINITY) ? s[1] : s[1]*(1 - (t-s[0])/s[2]);
+			final double actual = random.valueAt(t);
+			check(!Double.isNaN(actual), "no NaN at "+t);
+			check(expected == actual || close(actual, expected), "the total at "+t+" is "+actual+", not "+expected);
+		}
+		
+		System.out.println("LightCurve is fine.");
+		
+	}
+	
+	
+	private static boolean close(double actual, double expected) {
+		return Math.abs(actual - expected) <= 1e-9*Math.max(1, Math.abs(expected));
+	}
+	
+	
+	private static void check(boolean condition, String description) {
+		if (!condition) {
+			System.err.println("LightCurve check failed: "+description);
+			System.exit(1);
+		}
+	}
+
+}